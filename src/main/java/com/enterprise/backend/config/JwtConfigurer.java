@@ -7,15 +7,15 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 public class JwtConfigurer extends SecurityConfigurerAdapter<DefaultSecurityFilterChain, HttpSecurity> {
 
-    private final JwtToken jwtToken;
+    private final VerifiedTokenCache verifiedTokenCache;
 
-    public JwtConfigurer(JwtToken jwtToken) {
-        this.jwtToken = jwtToken;
+    public JwtConfigurer(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Override
     public void configure(HttpSecurity http) {
-        JwtFilter customFilter = new JwtFilter(jwtToken);
+        JwtFilter customFilter = new JwtFilter(verifiedTokenCache);
         http.addFilterBefore(customFilter, UsernamePasswordAuthenticationFilter.class);
     }
 }
@@ -19,10 +19,10 @@ import java.io.IOException;
 @Log4j2
 public class JwtFilter extends GenericFilterBean {
 
-    private final JwtToken jwtToken;
+    private final VerifiedTokenCache verifiedTokenCache;
 
-    public JwtFilter(JwtToken jwtToken) {
-        this.jwtToken = jwtToken;
+    public JwtFilter(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Override
@@ -33,7 +33,7 @@ public class JwtFilter extends GenericFilterBean {
 
         final String requestTokenHeader = request.getHeader("Authorization");
 
-        String username = null;
+        UserDetails userDetails = null;
         String jwtTokenString = null;
 
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
@@ -42,7 +42,9 @@ public class JwtFilter extends GenericFilterBean {
                 jwtTokenString = null;
             }
             try {
-                username = this.jwtToken.getUsernameFromToken(jwtTokenString);
+                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                    userDetails = this.verifiedTokenCache.get(jwtTokenString);
+                }
             } catch (IllegalArgumentException e) {
                 logger.error("Unable to get JWT Token");
             } catch (ExpiredJwtException e) {
@@ -54,16 +56,11 @@ public class JwtFilter extends GenericFilterBean {
             logger.warn("JWT Token does not begin with Bearer String");
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-            UserDetails userDetails = this.jwtToken.validateToken(jwtTokenString);
-
-            if (userDetails != null) {
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-            }
+        if (userDetails != null) {
+            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
         }
 
         filterChain.doFilter(request, response);
@@ -1,15 +1,21 @@
 package com.enterprise.backend.config;
 
 import com.enterprise.backend.auth.AuthoritiesConstants;
+import com.enterprise.backend.model.entity.Authority;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
+import javax.crypto.spec.SecretKeySpec;
 import java.io.Serializable;
+import java.security.Key;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Component
@@ -19,29 +25,27 @@ public class JwtToken implements Serializable {
 
     private static final long serialVersionUID = -2550185165626007488L;
 
-    @Value("${security.jwt.token.secret-key}")
-    private String secret;
-
-    public String getUsernameFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
-    }
-
-    public Date getExpirationDateFromToken(String token) {
-        return getClaimFromToken(token, Claims::getExpiration);
-    }
-
-    public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
-        return claimsResolver.apply(claims);
+    private static final List<SimpleGrantedAuthority> DEFAULT_ROLES =
+            List.of(new SimpleGrantedAuthority(AuthoritiesConstants.ROLE_USER));
+    private static final Map<String, SimpleGrantedAuthority> KNOWN_ROLES = Arrays.stream(Authority.Role.values())
+            .collect(Collectors.toUnmodifiableMap(Enum::name, role -> new SimpleGrantedAuthority(role.name())));
+    private static final int MAX_INTERNED_ROLE_LISTS = 64;
+
+    private final Map<String, List<SimpleGrantedAuthority>> internedRoles = new ConcurrentHashMap<>();
+    private final transient Key signingKey;
+    private final transient JwtParser parser;
+
+    /**
+     * The secret is read as base64, as jjwt does for string keys, so existing tokens stay valid.
+     * The key and parser are built once; the configured parser is only read while parsing.
+     */
+    public JwtToken(@Value("${security.jwt.token.secret-key}") String secret) {
+        this.signingKey = new SecretKeySpec(TextCodec.BASE64.decode(secret), SignatureAlgorithm.HS512.getJcaName());
+        this.parser = Jwts.parser().setSigningKey(signingKey);
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(String username) {
@@ -61,43 +65,64 @@ public class JwtToken implements Serializable {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + JWT_TOKEN_VALIDITY * 1000))
-                .signWith(SignatureAlgorithm.HS512, secret)
+                .signWith(SignatureAlgorithm.HS512, signingKey)
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        try {
-            final String username = getUsernameFromToken(token);
-            return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    public UserDetails validateToken(String token) {
-        try {
-            Claims claims = getAllClaimsFromToken(token);
-            if (Boolean.TRUE.equals(isTokenExpired(token))) {
-                return null;
-            }
-            return new org.springframework.security.core.userdetails.User(
-                    claims.getSubject(),
-                    "",
-                    getRolesFromClaims(claims)
-            );
-        } catch (Exception e) {
-            return null;
-        }
+    /**
+     * Parses and verifies the token once, returning its principal and expiry.
+     *
+     * @throws JwtException if the token is malformed, badly signed or expired
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims = getAllClaimsFromToken(token);
+        UserDetails principal = new org.springframework.security.core.userdetails.User(
+                claims.getSubject(),
+                "",
+                getRolesFromClaims(claims)
+        );
+        return new VerifiedToken(principal, claims.getExpiration().getTime());
     }
 
+    /**
+     * Roles claims built from {@link Authority.Role} values share one immutable authority list per distinct claim.
+     */
     private List<SimpleGrantedAuthority> getRolesFromClaims(Claims claims) {
         String rolesString = claims.get("roles", String.class);
         if (rolesString == null || rolesString.isEmpty()) {
-            return Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.ROLE_USER));
+            return DEFAULT_ROLES;
+        }
+        List<SimpleGrantedAuthority> interned = internedRoles.get(rolesString);
+        if (interned != null) {
+            return interned;
         }
-        String[] roles = rolesString.split(",");
-        return Arrays.stream(roles)
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+        List<SimpleGrantedAuthority> roles = new ArrayList<>(KNOWN_ROLES.size());
+        boolean known = true;
+        int start = 0;
+        while (start <= rolesString.length()) {
+            int end = rolesString.indexOf(',', start);
+            if (end < 0) {
+                end = rolesString.length();
+            }
+            String role = rolesString.substring(start, end);
+            SimpleGrantedAuthority authority = KNOWN_ROLES.get(role);
+            if (authority == null) {
+                known = false;
+                authority = new SimpleGrantedAuthority(role);
+            }
+            roles.add(authority);
+            start = end + 1;
+        }
+        if (!known || internedRoles.size() >= MAX_INTERNED_ROLE_LISTS) {
+            return roles;
+        }
+        return internedRoles.computeIfAbsent(rolesString, key -> List.copyOf(roles));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class VerifiedToken {
+        private final UserDetails principal;
+        private final long expiresAtMillis;
     }
 }
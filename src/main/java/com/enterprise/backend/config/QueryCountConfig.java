@@ -0,0 +1,45 @@
+package com.enterprise.backend.config;
+
+import com.enterprise.backend.service.MetricsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * SQL statement counting per HTTP request, enabled with the {@code query-count} profile. Counts per endpoint are
+ * published under the {@code sql} metric.
+ */
+@Configuration
+@Profile("query-count")
+public class QueryCountConfig {
+
+    @Bean
+    static BeanPostProcessor queryCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? QueryCounter.wrap((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public QueryCounter queryCounter(@Value("${app.query-count.budget:15}") int budget, MetricsService metricsService) {
+        QueryCounter queryCounter = new QueryCounter(budget);
+        metricsService.register("sql", queryCounter::snapshot);
+        return queryCounter;
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(QueryCounter queryCounter) {
+        FilterRegistrationBean<QueryCountFilter> registration = new FilterRegistrationBean<>(new QueryCountFilter(queryCounter));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
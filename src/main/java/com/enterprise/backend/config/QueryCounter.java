@@ -0,0 +1,129 @@
+package com.enterprise.backend.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the JDBC statements each HTTP request runs and aggregates them per endpoint. A statement is charged to the
+ * request running on the same thread; a JDBC batch counts once. Requests above the budget are logged.
+ */
+@Slf4j
+public class QueryCounter {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final int budget;
+
+    public QueryCounter(int budget) {
+        this.budget = budget;
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        return proxy(dataSource, DataSource.class);
+    }
+
+    /**
+     * Starts counting the statements of the calling thread, dropping any count in progress.
+     */
+    public static void begin() {
+        CURRENT.set(new int[1]);
+    }
+
+    /**
+     * Statements the calling thread ran since {@link #begin()}, 0 when it is not counting.
+     */
+    public static int current() {
+        int[] current = CURRENT.get();
+        return current != null ? current[0] : 0;
+    }
+
+    int end(String endpoint) {
+        int[] current = CURRENT.get();
+        CURRENT.remove();
+        if (current == null) {
+            return 0;
+        }
+        int statements = current[0];
+        boolean overBudget = statements > budget;
+        endpoints.computeIfAbsent(endpoint, key -> new EndpointStats()).record(statements, overBudget);
+        if (overBudget) {
+            log.warn("{} ran {} SQL statements, budget is {}", endpoint, statements, budget);
+        }
+        return statements;
+    }
+
+    public Map<String, EndpointStats> snapshot() {
+        return new TreeMap<>(endpoints);
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private static <T> T proxy(Object target, Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(QueryCounter.class.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            if (target instanceof Statement && method.getName().startsWith("execute")) {
+                int[] current = CURRENT.get();
+                if (current != null) {
+                    current[0]++;
+                }
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Connection) {
+                return proxy(result, Connection.class);
+            }
+            if (result instanceof Statement && method.getReturnType().isInterface()) {
+                return proxy(result, method.getReturnType());
+            }
+            return result;
+        }));
+    }
+
+    public static class EndpointStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(int count, boolean exceeded) {
+            requests.increment();
+            statements.add(count);
+            max.accumulateAndGet(count, Math::max);
+            if (exceeded) {
+                overBudget.increment();
+            }
+        }
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getStatements() {
+            return statements.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getOverBudget() {
+            return overBudget.sum();
+        }
+    }
+}
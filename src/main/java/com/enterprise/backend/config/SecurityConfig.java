@@ -1,7 +1,10 @@
 package com.enterprise.backend.config;
 
+import com.enterprise.backend.security.PasswordHashingService;
+import com.enterprise.backend.service.MetricsService;
 import com.enterprise.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,7 +16,6 @@ import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 
@@ -29,18 +31,26 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private OauthHandle oauthHandle;
     @Autowired
-    private JwtToken jwtToken;
+    private VerifiedTokenCache verifiedTokenCache;
     @Autowired
     private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordHashingService passwordEncoder(@Value("${app.password.encoding-id:bcrypt}") String encodingId,
+                                                  @Value("${app.password.bcrypt-strength:10}") int bcryptStrength,
+                                                  @Value("${app.password.threads:4}") int threads,
+                                                  @Value("${app.password.queue-capacity:200}") int queueCapacity,
+                                                  @Value("${app.password.timeout-ms:5000}") long timeoutMillis,
+                                                  MetricsService metricsService) {
+        PasswordHashingService passwordEncoder = new PasswordHashingService(encodingId, bcryptStrength,
+                threads, queueCapacity, timeoutMillis);
+        metricsService.register("password", passwordEncoder::stats);
+        return passwordEncoder;
     }
 
     @Autowired
-    public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(jwtUserDetailsService).passwordEncoder(passwordEncoder());
+    public void configureGlobal(AuthenticationManagerBuilder auth, PasswordEncoder passwordEncoder) throws Exception {
+        auth.userDetailsService(jwtUserDetailsService).passwordEncoder(passwordEncoder);
     }
 
     @Bean
@@ -80,7 +90,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     }
 
     private JwtConfigurer securityConfigurerAdapter() {
-        return new JwtConfigurer(jwtToken);
+        return new JwtConfigurer(verifiedTokenCache);
     }
 
     @Override
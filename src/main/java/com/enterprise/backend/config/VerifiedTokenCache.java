@@ -0,0 +1,99 @@
+package com.enterprise.backend.config;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Principals of already verified JWTs keyed by the SHA-256 of the token, kept until the token expires
+ * (capped by {@code app.cache.jwt.ttl-seconds}), so a token's signature is checked once per node.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final int SEGMENTS = 16;
+
+    private final JwtToken jwtToken;
+    private final ExpiringCache<String, UserDetails> cache;
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final LongAccumulator maxVerifyNanos = new LongAccumulator(Math::max, 0);
+
+    public VerifiedTokenCache(JwtToken jwtToken,
+                              @Value("${app.cache.jwt.max-size:10000}") int maxSize,
+                              @Value("${app.cache.jwt.ttl-seconds:3600}") long ttlSeconds,
+                              MetricsService metricsService) {
+        this.jwtToken = jwtToken;
+        // read by every authenticated request, so the entries are striped rather than behind a single lock
+        this.cache = new ExpiringCache<>(maxSize, ttlSeconds * 1000, SEGMENTS);
+        metricsService.register("jwt-cache", this::stats);
+    }
+
+    /**
+     * Returns the principal of a valid token, verifying it only on a cache miss.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token has to be verified and is invalid or expired
+     */
+    public UserDetails get(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT String argument cannot be null or empty.");
+        }
+        String key = digest(token);
+        UserDetails principal = cache.get(key);
+        if (principal != null) {
+            return principal;
+        }
+        long start = System.nanoTime();
+        try {
+            JwtToken.VerifiedToken verified = jwtToken.verify(token);
+            cache.put(key, verified.getPrincipal(), verified.getExpiresAtMillis());
+            return verified.getPrincipal();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            verifications.increment();
+            verifyNanos.add(elapsed);
+            maxVerifyNanos.accumulate(elapsed);
+        }
+    }
+
+    public Stats stats() {
+        long count = verifications.sum();
+        return new Stats(cache.stats(), count,
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(verifyNanos.sum() / count),
+                TimeUnit.NANOSECONDS.toMicros(maxVerifyNanos.get()));
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final ExpiringCache.Stats cache;
+        private final long verifications;
+        private final long averageVerifyMicros;
+        private final long maxVerifyMicros;
+    }
+}
@@ -6,6 +6,7 @@ import com.enterprise.backend.model.request.BanUserRequest;
 import com.enterprise.backend.model.request.SetAuthorityRequest;
 import com.enterprise.backend.model.response.UserResponse;
 import com.enterprise.backend.service.AdminService;
+import com.enterprise.backend.service.MetricsService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import lombok.RequiredArgsConstructor;
@@ -18,12 +19,14 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/admin")
 @RequiredArgsConstructor
 public class AdminController {
     private final AdminService adminService;
+    private final MetricsService metricsService;
 
     @Secured(AuthoritiesConstants.ROLE_SUPER_ADMIN)
     @GetMapping("/users")
@@ -57,4 +60,11 @@ public class AdminController {
     public ResponseEntity<UserResponse> banUser(@RequestBody @Valid BanUserRequest request) {
         return ResponseEntity.ok(adminService.banUser(request.getUsername()));
     }
+
+    @Secured(AuthoritiesConstants.ROLE_SUPER_ADMIN)
+    @GetMapping("/metrics")
+    @ApiOperation(value = "", authorizations = {@Authorization(value = "Bearer")})
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(metricsService.snapshot());
+    }
 }
@@ -2,19 +2,20 @@ package com.enterprise.backend.controller;
 
 import com.enterprise.backend.auth.AuthoritiesConstants;
 import com.enterprise.backend.model.enums.OrderStatus;
-import com.enterprise.backend.model.enums.OrderTypeStatus;
 import com.enterprise.backend.model.request.*;
 import com.enterprise.backend.model.response.ProductOrderResponse;
 import com.enterprise.backend.model.response.ProductResponse;
 import com.enterprise.backend.model.response.ReviewResponse;
+import com.enterprise.backend.model.response.UploadResponse;
 import com.enterprise.backend.security.SecurityUtil;
 import com.enterprise.backend.service.ProductOrderService;
 import com.enterprise.backend.service.ProductService;
 import com.enterprise.backend.service.ReviewService;
+import com.enterprise.backend.service.image.ImageService;
+import com.enterprise.backend.service.image.ImageVariant;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +25,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -34,6 +37,7 @@ public class ProductController {
     private final ProductService productService;
     private final ProductOrderService productOrderService;
     private final ReviewService reviewService;
+    private final ImageService imageService;
 
     @PostMapping
     @Secured({AuthoritiesConstants.ROLE_ADMIN, AuthoritiesConstants.ROLE_SUPER_ADMIN})
@@ -111,8 +115,7 @@ public class ProductController {
     @GetMapping("/order/favorite-search")
     @ApiOperation(value = "", authorizations = {@Authorization(value = "Bearer")})
     public Page<ProductOrderResponse> favoriteSearchProductOrder(@ModelAttribute SearchProductOrderRequest searchRequest) {
-        searchRequest.setType(OrderTypeStatus.FAVORITE);
-        return productOrderService.adminSearchProductOrder(searchRequest, SecurityUtil.getCurrentUsername());
+        return productService.searchFavorites(searchRequest, SecurityUtil.getCurrentUsername());
     }
 
     @GetMapping("/review/{productId}")
@@ -128,8 +131,19 @@ public class ProductController {
         return productService.uploadFiles(request, file);
     }
 
+    @PostMapping("/uploads")
+    @Secured({AuthoritiesConstants.ROLE_ADMIN, AuthoritiesConstants.ROLE_SUPER_ADMIN})
+    @ApiOperation(value = "", authorizations = {@Authorization(value = "Bearer")})
+    public List<UploadResponse> uploadFileBatch(HttpServletRequest request,
+                                                @RequestParam("files") List<MultipartFile> files) {
+        return productService.uploadFileBatch(request, files);
+    }
+
     @GetMapping("/images/{filename:.+}")
-    public ResponseEntity<Resource> getFile(@PathVariable String filename) {
-        return productService.getFile(filename);
+    public void getFile(@PathVariable String filename,
+                        @RequestParam(required = false) String size,
+                        HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+        imageService.serve(filename, ImageVariant.of(size).orElse(null), request, response);
     }
 }
@@ -4,16 +4,22 @@ import com.enterprise.backend.model.entity.Authority;
 import com.enterprise.backend.model.request.UserRequest;
 import com.enterprise.backend.model.response.UserResponse;
 import com.enterprise.backend.service.AdminService;
+import com.enterprise.backend.service.FavoriteService;
+import com.enterprise.backend.service.ProductRatingService;
+import com.enterprise.backend.service.ProductService;
+import com.enterprise.backend.service.ReviewService;
 import com.enterprise.backend.service.UserService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.io.File;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @Log4j2
@@ -22,6 +28,10 @@ import java.io.File;
 public class JobService {
     final UserService userService;
     final AdminService adminService;
+    final ProductService productService;
+    final ProductRatingService productRatingService;
+    final ReviewService reviewService;
+    final FavoriteService favoriteService;
 
     @Value("${app.admin.username}")
     private String usernameAdmin;
@@ -31,11 +41,19 @@ public class JobService {
     private String emailAdmin;
     @Value("${app.admin.phone}")
     private String phoneAdmin;
+    @Value("${app.order.reservation.ttl-minutes:0}")
+    private long reservationTtlMinutes;
+    @Value("${app.order.reservation.batch-size:100}")
+    private int reservationBatchSize;
+    @Value("${app.rating.backfill-batch-size:100}")
+    private int ratingBackfillBatchSize;
 
     @PostConstruct
     public void jobService() {
         new Thread(this::registerAdmin).start();
-        new Thread(this::createImageFolder).start();
+        new Thread(this::backfillRatings).start();
+        new Thread(this::backfillReviewerNames).start();
+        new Thread(this::migrateFavorites).start();
     }
 
     private void registerAdmin() {
@@ -55,11 +73,70 @@ public class JobService {
         }
     }
 
-    private void createImageFolder() {
-        File imageFolder = new File("./image");
-        if (!imageFolder.exists()) {
-            log.info("Create folder image done: {}", imageFolder.mkdir());
+    /**
+     * Fills the star counts of products that predate them; stops early when a whole batch fails.
+     */
+    private void backfillRatings() {
+        int total = 0;
+        List<Long> productIds;
+        do {
+            productIds = productRatingService.findProductIdsWithoutRating(ratingBackfillBatchSize);
+            int done = 0;
+            for (Long productId : productIds) {
+                try {
+                    if (productRatingService.backfill(productId)) {
+                        done++;
+                    }
+                } catch (Exception e) {
+                    log.error("Cannot backfill rating of product {}", productId, e);
+                }
+            }
+            if (done == 0) break;
+            total += done;
+        } while (productIds.size() == ratingBackfillBatchSize);
+        if (total > 0) {
+            log.info("Backfilled rating of {} product(s)", total);
         }
     }
 
+    private void backfillReviewerNames() {
+        try {
+            int updated = reviewService.backfillReviewerNames();
+            if (updated > 0) {
+                log.info("Backfilled reviewer name of {} review(s)", updated);
+            }
+        } catch (Exception e) {
+            log.error("Cannot backfill reviewer names", e);
+        }
+    }
+
+    private void migrateFavorites() {
+        try {
+            int migrated = favoriteService.migrateLegacyFavorites();
+            if (migrated > 0) {
+                log.info("Migrated {} favorite(s) from product orders", migrated);
+            }
+        } catch (Exception e) {
+            log.error("Cannot migrate favorites", e);
+        }
+    }
+
+    /**
+     * Cancels orders still NEW after the reservation ttl so their stock goes back on sale.
+     */
+    @Scheduled(fixedDelayString = "${app.order.reservation.sweep-interval-ms:60000}")
+    public void releaseExpiredReservations() {
+        if (reservationTtlMinutes <= 0) return;
+        List<Long> expired = productService.findExpiredOrderIds(
+                LocalDateTime.now().minusMinutes(reservationTtlMinutes), reservationBatchSize);
+        for (Long productOrderId : expired) {
+            try {
+                if (productService.expireOrder(productOrderId)) {
+                    log.info("Reservation of order {} expired, stock released", productOrderId);
+                }
+            } catch (Exception e) {
+                log.error("Cannot release reservation of order {}", productOrderId, e);
+            }
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package com.enterprise.backend.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * A product marked as favorite by a user, one row per pair.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(name = "idx_favorite_product_product_id", columnList = "product_id"))
+public class FavoriteProduct implements Serializable {
+    @EmbeddedId
+    private Key id;
+
+    private LocalDateTime createdDate = LocalDateTime.now();
+
+    public FavoriteProduct(String userId, Long productId) {
+        this.id = new Key(userId, productId);
+    }
+
+    @Data
+    @Embeddable
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Column(name = "user_id")
+        private String userId;
+
+        @Column(name = "product_id")
+        private Long productId;
+    }
+}
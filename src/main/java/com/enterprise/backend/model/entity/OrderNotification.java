@@ -0,0 +1,60 @@
+package com.enterprise.backend.model.entity;
+
+import com.enterprise.backend.model.enums.OrderNotificationType;
+import com.enterprise.backend.model.enums.OrderStatus;
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for an order mail, written in the same transaction as the order change
+ * and deleted by {@code OrderNotificationRelay} once every recipient got the mail.
+ */
+@Getter
+@Setter
+@Builder
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderNotification implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long productOrderId;
+
+    @Enumerated(EnumType.STRING)
+    private OrderNotificationType type;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus orderStatus;
+
+    @Builder.Default
+    private int attempts = 0;
+
+    private LocalDateTime claimedDate;
+
+    // addresses the mail was already delivered to, one per line; a retry skips them
+    @Lob
+    private String deliveredTo;
+
+    @Builder.Default
+    private LocalDateTime createdDate = LocalDateTime.now();
+
+    public static OrderNotification newOrder(Long productOrderId) {
+        return OrderNotification.builder()
+                .productOrderId(productOrderId)
+                .type(OrderNotificationType.NEW_ORDER)
+                .build();
+    }
+
+    public static OrderNotification statusChanged(Long productOrderId, OrderStatus status) {
+        return OrderNotification.builder()
+                .productOrderId(productOrderId)
+                .type(OrderNotificationType.STATUS_CHANGED)
+                .orderStatus(status)
+                .build();
+    }
+}
@@ -10,14 +10,17 @@ import lombok.ToString;
 import lombok.experimental.FieldNameConstants;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 @Entity
+@NamedEntityGraph(name = Product.WITH_CATEGORIES, attributeNodes = @NamedAttributeNode("categories"))
 @Getter
 @Setter
 @FieldNameConstants
 public class Product extends Auditable implements Serializable {
+    public static final String WITH_CATEGORIES = "Product.categories";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,21 +39,38 @@ public class Product extends Auditable implements Serializable {
     private Long quantity;
     private Double rate = 0.0;
 
+    /**
+     * Number of reviews per star; all null on rows created before the columns existed, until backfilled.
+     */
+    private Long rating1 = 0L;
+    private Long rating2 = 0L;
+    private Long rating3 = 0L;
+    private Long rating4 = 0L;
+    private Long rating5 = 0L;
+
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Review> reviews;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Orders> orders;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "product_categories",
             joinColumns = @JoinColumn(name = "product_id"),
             inverseJoinColumns = @JoinColumn(name = "categories_id"))
     private Set<Category> categories;
+
+    public List<Long> getRatingDistribution() {
+        return ratingDistribution(rating1, rating2, rating3, rating4, rating5);
+    }
+
+    public static List<Long> ratingDistribution(Long... stars) {
+        return stars[0] == null ? null : Arrays.asList(stars);
+    }
 }
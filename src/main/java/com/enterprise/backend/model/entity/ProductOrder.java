@@ -11,22 +11,27 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@NamedEntityGraph(name = ProductOrder.WITH_PRODUCTS,
+        attributeNodes = @NamedAttributeNode(value = "orders", subgraph = "orders.product"),
+        subgraphs = @NamedSubgraph(name = "orders.product", attributeNodes = @NamedAttributeNode("product")))
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductOrder extends Auditable implements Serializable {
+    public static final String WITH_PRODUCTS = "ProductOrder.orders.product";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @OneToMany(mappedBy = "productOrder", cascade = CascadeType.REFRESH, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "productOrder", cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     private Set<Orders> orders;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @ManyToOne(cascade = CascadeType.REFRESH)
+    @ManyToOne(cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
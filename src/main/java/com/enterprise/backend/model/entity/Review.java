@@ -24,15 +24,21 @@ public class Review extends Auditable implements Serializable {
 
     private String comment;
 
+    /**
+     * Full name of the reviewer when the review was written, kept in sync on rename so review pages need not join
+     * {@code user}.
+     */
+    private String reviewerName;
+
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @ManyToOne(cascade = CascadeType.REFRESH)
+    @ManyToOne(cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @ManyToOne(cascade = CascadeType.REFRESH)
+    @ManyToOne(cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 }
@@ -12,8 +12,11 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@NamedEntityGraph(name = User.WITH_AUTHORITIES, attributeNodes = @NamedAttributeNode("authorities"))
 @Table(indexes = {@Index(name = "userEmailIndex", columnList = "email"), @Index(name = "userPhoneIndex", columnList = "phone")})
 public class User extends Auditable implements Serializable {
+    public static final String WITH_AUTHORITIES = "User.authorities";
+
     @Id
     private String id;
 
@@ -32,21 +35,21 @@ public class User extends Auditable implements Serializable {
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     private Set<Review> reviews;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     private Set<ProductOrder> productOrders;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     private Set<Authority> authorities;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     private Set<CodeForgotPass> codes;
 }
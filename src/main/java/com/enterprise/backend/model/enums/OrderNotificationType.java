@@ -0,0 +1,5 @@
+package com.enterprise.backend.model.enums;
+
+public enum OrderNotificationType {
+    NEW_ORDER, STATUS_CHANGED,
+}
@@ -9,6 +9,7 @@ public enum ErrorCode {
     CONFLICT("APP-03", "Not found entity!!", HttpStatus.CONFLICT),
     UNAUTHORIZED("APP-UNAUTHORIZED", "Phiên làm việc hết hạn!", HttpStatus.UNAUTHORIZED),
     INTERNAL_SERVER("APP-INTERNAL-SERVER", "internal server!", HttpStatus.INTERNAL_SERVER_ERROR),
+    SERVER_BUSY("APP-BUSY", "Hệ thống đang bận, vui lòng thử lại!", HttpStatus.SERVICE_UNAVAILABLE),
     USER_NOT_FOUND(NOT_FOUND.code, "Không tìm thấy người dùng!", HttpStatus.BAD_REQUEST),
     ROLE_NOT_FOUND(NOT_FOUND.code, "Không tìm thấy role của user!", HttpStatus.BAD_REQUEST),
     INVALID_USERNAME(BAD_REQUEST.code, "Sai username", HttpStatus.BAD_REQUEST),
@@ -29,9 +30,11 @@ public enum ErrorCode {
     CONFLICT_PHONE(CONFLICT.code, "Trùng số điện thoại!", HttpStatus.CONFLICT),
     ORDER_NOT_FOUND(NOT_FOUND.code, "order not found!", HttpStatus.NOT_FOUND),
     PRODUCT_ORDER_NOT_FOUND(NOT_FOUND.code, "product order not found!", HttpStatus.NOT_FOUND),
+    ORDER_CANCELLED(CONFLICT.code, "Order is already cancelled!", HttpStatus.CONFLICT),
     INVALID_ORDER(BAD_REQUEST.code, "Số thứ tự trong khoảng thừ 1 đến 6", HttpStatus.BAD_REQUEST),
     PRICE_INVALID(BAD_REQUEST.code, "Giá tiền không được âm!", HttpStatus.BAD_REQUEST),
     INVALID_DATE(BAD_REQUEST.code, "Invalid date. Date must be dd/mm/yyyy!", HttpStatus.BAD_REQUEST),
+    INVALID_CURSOR(BAD_REQUEST.code, "Invalid cursor!", HttpStatus.BAD_REQUEST),
     ;
 
     private final String code;
@@ -3,6 +3,7 @@ package com.enterprise.backend.model.request;
 import lombok.Data;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import java.util.List;
@@ -30,6 +31,7 @@ public class ProductOrderRequest {
         @NotNull(message = "productId is required!")
         private Long productId;
         @NotNull(message = "quantity is required!")
+        @Min(value = 1, message = "quantity must be positive!")
         private Integer quantity;
     }
 }
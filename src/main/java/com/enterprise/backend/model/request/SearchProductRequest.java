@@ -3,6 +3,8 @@ package com.enterprise.backend.model.request;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 public class SearchProductRequest extends SearchRequest {
@@ -11,4 +13,6 @@ public class SearchProductRequest extends SearchRequest {
     private String title;
     private Long fromPrice;
     private Long toPrice;
+    private Boolean facets;
+    private List<Long> priceBuckets;
 }
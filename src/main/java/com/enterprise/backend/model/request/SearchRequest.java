@@ -25,6 +25,7 @@ public abstract class SearchRequest {
     Integer pageNumber = 0;
     String orderBy = "createdDate";
     Boolean isDesc = true;
+    String cursor;
 
     public void setToCreatedDate(String toCreatedDate) {
         if (StringUtils.isEmpty(toCreatedDate)) return;
@@ -0,0 +1,17 @@
+package com.enterprise.backend.model.response;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+@Getter
+public class CursorPage<T> extends PageImpl<T> {
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, Pageable pageable, long total, String nextCursor) {
+        super(content, pageable, total);
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,25 @@
+package com.enterprise.backend.model.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProductFacetsResponse {
+    private List<CategoryFacet> categories;
+    private List<PriceFacet> prices;
+
+    @Data
+    public static class CategoryFacet {
+        private Long id;
+        private String name;
+        private Long count;
+    }
+
+    @Data
+    public static class PriceFacet {
+        private Long from;
+        private Long to;
+        private Long count;
+    }
+}
@@ -12,6 +12,7 @@ public class ProductResponse {
     private Long price;
     private Long quantity;
     private Double rate;
+    private List<Long> ratingDistribution;
     private String createdBy;
     private String updatedBy;
     private String createdDate;
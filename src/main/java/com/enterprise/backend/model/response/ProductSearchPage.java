@@ -0,0 +1,17 @@
+package com.enterprise.backend.model.response;
+
+import lombok.Getter;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+@Getter
+public class ProductSearchPage extends CursorPage<ProductResponse> {
+    private final ProductFacetsResponse facets;
+
+    public ProductSearchPage(List<ProductResponse> content, Pageable pageable, long total, String nextCursor,
+                             ProductFacetsResponse facets) {
+        super(content, pageable, total, nextCursor);
+        this.facets = facets;
+    }
+}
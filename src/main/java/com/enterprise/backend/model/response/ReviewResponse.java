@@ -2,6 +2,8 @@ package com.enterprise.backend.model.response;
 
 import lombok.Data;
 
+import java.util.Date;
+
 @Data
 public class ReviewResponse {
     private Long id;
@@ -9,4 +11,5 @@ public class ReviewResponse {
     private String comment;
     private String fullName;
     private String userId;
+    private Date createdDate;
 }
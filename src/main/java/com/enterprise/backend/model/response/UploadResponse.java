@@ -0,0 +1,18 @@
+package com.enterprise.backend.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one uploaded file; {@code url} is {@code null} when the file could not be stored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadResponse {
+    private String fileName;
+    private String url;
+    private long size;
+    private long millis;
+}
@@ -0,0 +1,168 @@
+package com.enterprise.backend.security;
+
+import com.enterprise.backend.exception.EnterpriseBackendException;
+import com.enterprise.backend.model.error.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Password encoder that acts as a bulkhead for BCrypt: at most {@code threads} hashes run at once and at most
+ * {@code queue-capacity} wait, so a login storm cannot put every CPU core on hashing. It does not free request
+ * threads; the caller still blocks until its hash is done, for up to {@code timeout-ms}, and is turned away with
+ * {@link ErrorCode#SERVER_BUSY} when the queue is full or the wait runs out.
+ * Hashes are written as {@code {id}hash} through a {@link DelegatingPasswordEncoder}; legacy unprefixed
+ * BCrypt hashes still match and, like hashes of another id or BCrypt cost, report {@link #upgradeEncoding}.
+ */
+public class PasswordHashingService implements PasswordEncoder, DisposableBean {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^(?:\\{bcrypt})?\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final DelegatingPasswordEncoder delegate;
+    private final String encodingId;
+    private final int bcryptStrength;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeTimer = new Timer();
+    private final Timer matchesTimer = new Timer();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHashingService(String encodingId, int bcryptStrength, int threads, int queueCapacity, long timeoutMillis) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder());
+        this.delegate = new DelegatingPasswordEncoder(encodingId, encoders);
+        this.delegate.setDefaultPasswordEncoderForMatches(bcrypt);
+        this.encodingId = encodingId;
+        this.bcryptStrength = bcryptStrength;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("PasswordHasher-"));
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True when the hash was not written with the configured id, or is BCrypt with a different cost,
+     * stronger or cheaper.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        if (!encodedPassword.startsWith("{" + encodingId + "}")) {
+            return true;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != bcryptStrength;
+    }
+
+    public Stats stats() {
+        return new Stats(executor.getQueue().size(), executor.getActiveCount(), rejected.sum(),
+                encodeTimer.count.sum(), encodeTimer.averageMillis(), encodeTimer.maxMillis(),
+                matchesTimer.count.sum(), matchesTimer.averageMillis(), matchesTimer.maxMillis());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs {@code task} on the pool and waits for it on the calling thread.
+     */
+    private <T> T submit(Timer timer, Callable<T> task) {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new EnterpriseBackendException(ErrorCode.SERVER_BUSY);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new EnterpriseBackendException(ErrorCode.SERVER_BUSY);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new EnterpriseBackendException(ErrorCode.SERVER_BUSY);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        long averageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / n);
+        }
+
+        long maxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int queueDepth;
+        private final int active;
+        private final long rejected;
+        private final long encodes;
+        private final long averageEncodeMillis;
+        private final long maxEncodeMillis;
+        private final long matches;
+        private final long averageMatchesMillis;
+        private final long maxMatchesMillis;
+    }
+}
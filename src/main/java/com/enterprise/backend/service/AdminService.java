@@ -5,6 +5,7 @@ import com.enterprise.backend.model.entity.Authority;
 import com.enterprise.backend.model.entity.User;
 import com.enterprise.backend.model.error.ErrorCode;
 import com.enterprise.backend.model.response.UserResponse;
+import com.enterprise.backend.service.cache.UserCredentialCache;
 import com.enterprise.backend.service.repository.AuthorityRepository;
 import com.enterprise.backend.service.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class AdminService {
 
     private final UserRepository userRepository;
     private final AuthorityRepository authorityRepository;
+    private final UserCredentialCache userCredentialCache;
 
     public Page<UserResponse> getByType(int pageIndex, int pageSize, String type, String keyword) {
         Pageable paging = PageRequest.of(pageIndex - 1, pageSize, Sort.by(Sort.Direction.DESC, "created_date"));
@@ -68,6 +70,7 @@ public class AdminService {
         authority.setRole(role);
         authority.setUser(user);
         authorityRepository.save(authority);
+        userCredentialCache.evict(userId);
     }
 
     public void deleteAdminWithUserId(String userId) {
@@ -78,6 +81,7 @@ public class AdminService {
                 new EnterpriseBackendException(ErrorCode.ROLE_NOT_FOUND));
 
         authorityRepository.delete(authority);
+        userCredentialCache.evict(userId);
     }
 
     public void deleteUserWithUserId(String userId) {
@@ -88,6 +92,7 @@ public class AdminService {
                 new EnterpriseBackendException(ErrorCode.ROLE_NOT_FOUND));
 
         authorityRepository.delete(authority);
+        userCredentialCache.evict(userId);
     }
 
     public UserResponse banUser(String userId) {
@@ -95,6 +100,7 @@ public class AdminService {
                 new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND));
 
         user.setActive(false);
+        userCredentialCache.evict(userId);
         return UserResponse.from(userRepository.save(user));
     }
 }
@@ -8,6 +8,7 @@ import com.enterprise.backend.model.error.ErrorCode;
 import com.enterprise.backend.model.request.ChangePasswordRequest;
 import com.enterprise.backend.model.request.LoginRequest;
 import com.enterprise.backend.model.request.ResetPasswordRequest;
+import com.enterprise.backend.service.cache.UserCredentialCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -31,12 +32,14 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final CodeForgotPassService codeForgotPassService;
+    private final UserCredentialCache userCredentialCache;
 
     public void changePassword(ChangePasswordRequest request) {
         User userToChange = userService.getByUsernameOrEmailOrPhone(request.getUsername());
         authenticate(userToChange.getId(), request.getOldPassword());
         userToChange.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userService.save(userToChange);
+        userCredentialCache.evict(userToChange.getId());
     }
 
     public String validateUsernamePasswordAndGenToken(LoginRequest loginRequest) {
@@ -67,6 +70,7 @@ public class AuthService {
         codeForgotPassService.validateCode(userToChange, request.getCode());
         userToChange.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userService.save(userToChange);
+        userCredentialCache.evict(userToChange.getId());
 
     }
 }
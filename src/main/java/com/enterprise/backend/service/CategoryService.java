@@ -2,10 +2,12 @@ package com.enterprise.backend.service;
 
 import com.enterprise.backend.exception.EnterpriseBackendException;
 import com.enterprise.backend.model.entity.Category;
+import com.enterprise.backend.model.entity.Product;
 import com.enterprise.backend.model.error.ErrorCode;
 import com.enterprise.backend.model.request.CategoryRequest;
 import com.enterprise.backend.model.response.CategoryResponse;
 import com.enterprise.backend.service.base.BaseService;
+import com.enterprise.backend.service.cache.ProductCache;
 import com.enterprise.backend.service.repository.CategoryRepository;
 import com.enterprise.backend.service.transfomer.CategoryTransformer;
 import lombok.extern.slf4j.Slf4j;
@@ -22,13 +24,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CategoryService extends BaseService<Category, Long, CategoryRepository, CategoryTransformer, CategoryRequest, CategoryResponse> {
     private final CategoryTransformer categoryTransformer;
+    private final ProductCache productCache;
 
     protected CategoryService(CategoryRepository repo,
                               CategoryTransformer transformer,
                               EntityManager em,
-                              CategoryTransformer categoryTransformer) {
+                              CategoryTransformer categoryTransformer,
+                              ProductCache productCache) {
         super(repo, transformer, em);
         this.categoryTransformer = categoryTransformer;
+        this.productCache = productCache;
     }
 
     private void validateName(CategoryRequest categoryRequest) {
@@ -68,15 +73,23 @@ public class CategoryService extends BaseService<Category, Long, CategoryReposit
         }
 
         BeanUtils.copyProperties(categoryRequest, category);
+        evictProducts(category);
         return transformer.toResponse(repo.save(category));
     }
 
     @Transactional
     public void deleteCategory(Long id) {
         Category category = getOrElseThrow(id);
+        evictProducts(category);
         repo.delete(category);
     }
 
+    private void evictProducts(Category category) {
+        if (category.getProducts() != null) {
+            productCache.evict(category.getProducts().stream().map(Product::getId).collect(Collectors.toList()));
+        }
+    }
+
     public CategoryResponse getCategoryById(Long categoryId) {
         Category category = getOrElseThrow(categoryId);
         return categoryTransformer.toResponse(category);
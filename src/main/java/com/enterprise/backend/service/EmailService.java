@@ -3,29 +3,29 @@ package com.enterprise.backend.service;
 import com.enterprise.backend.model.entity.Authority;
 import com.enterprise.backend.model.entity.User;
 import com.enterprise.backend.model.enums.OrderStatus;
-import com.enterprise.backend.util.Constants;
-import com.enterprise.backend.util.HTMLTemplateReader;
+import com.enterprise.backend.service.mail.MailDispatcher;
+import com.enterprise.backend.service.mail.MailTemplateEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Log4j2
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender javaMailSender;
-
-    @Value("${app.admin.mail}")
-    private String adminEmail;
+    private final MailDispatcher mailDispatcher;
+    private final MailTemplateEngine mailTemplateEngine;
 
     @Value("${app.admin.phone}")
     private String adminPhone;
@@ -44,64 +44,59 @@ public class EmailService {
         return builder.toString();
     }
 
-    private void sendMail(String content, String subject, String to, boolean isHtml) {
-        try {
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, Constants.UTF_8);
-            helper.setText(content, isHtml);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setFrom(adminEmail);
-            javaMailSender.send(mimeMessage);
-            log.info("Mail sent successfully to {}", to);
-        } catch (Exception e) {
-            log.error("Error while sending mail to {}: {}", to, e.getMessage(), e);
-        }
+    /**
+     * @return completes with false when the mail could not be delivered
+     */
+    private CompletableFuture<Boolean> sendMail(String content, String subject, String to, boolean isHtml) {
+        return StringUtils.isEmpty(to)
+                ? CompletableFuture.completedFuture(true)
+                : mailDispatcher.dispatch(to, subject, content, isHtml);
     }
 
-    public void sendNewOrder(String htmlContent, Set<User> receivers) {
+    public CompletableFuture<Boolean> sendNewOrder(String htmlContent, Set<User> receivers) {
         if (receivers == null || receivers.isEmpty()) {
-            return;
+            return CompletableFuture.completedFuture(true);
+        }
+        List<CompletableFuture<Boolean>> deliveries = new ArrayList<>();
+        for (User receiver : receivers) {
+            deliveries.add(sendNewOrder(htmlContent, receiver));
         }
-        receivers.forEach(receiver -> {
-            if (receiver.getAuthorities().stream()
-                    .anyMatch(authority -> Authority.Role.ROLE_SUPER_ADMIN.equals(authority.getRole())
-                            || Authority.Role.ROLE_ADMIN.equals(authority.getRole()))) {
-                String adminSubject = "Bạn có một đơn hàng mới";
-                new Thread(() -> sendMail(htmlContent, adminSubject, receiver.getEmail(), true)).start();
-            } else {
-                String receiverSubject = "Bạn vừa đặt một đơn hàng mới tại " + domainFrontEnd;
-                new Thread(() -> sendMail(htmlContent, receiverSubject, receiver.getEmail(), true)).start();
-            }
-        });
+        return CompletableFuture.allOf(deliveries.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> deliveries.stream().allMatch(CompletableFuture::join));
     }
 
-    public void sendUpdateOrder(String htmlContent, OrderStatus status, String receiver) {
-        StringBuilder receiverSubject = new StringBuilder();
+    public CompletableFuture<Boolean> sendNewOrder(String htmlContent, User receiver) {
+        if (receiver.getAuthorities().stream()
+                .anyMatch(authority -> Authority.Role.ROLE_SUPER_ADMIN.equals(authority.getRole())
+                        || Authority.Role.ROLE_ADMIN.equals(authority.getRole()))) {
+            String adminSubject = mailTemplateEngine.subject("new-order.admin", Map.of());
+            return sendMail(htmlContent, adminSubject, receiver.getEmail(), true);
+        }
+        String receiverSubject = mailTemplateEngine.subject("new-order.customer", Map.of("domain", domainFrontEnd));
+        return sendMail(htmlContent, receiverSubject, receiver.getEmail(), true);
+    }
+
+    public CompletableFuture<Boolean> sendUpdateOrder(String htmlContent, OrderStatus status, String receiver) {
         switch (status) {
             case PENDING:
-                receiverSubject.append("Đơn hàng của bạn đã được vận chuyển");
-                break;
             case COMPLETED:
-                receiverSubject.append("Đơn hàng của bạn đã được hoàn thành");
-                break;
             case CANCELLED:
-                receiverSubject.append("Đơn hàng của bạn đã bị hủy");
                 break;
             default:
-                return;
+                return CompletableFuture.completedFuture(true);
         }
-        new Thread(() -> sendMail(htmlContent, String.valueOf(receiverSubject), receiver, true)).start();
+        String receiverSubject = mailTemplateEngine.subject("order-status." + status.name(), Map.of());
+        return sendMail(htmlContent, receiverSubject, receiver, true);
     }
 
     @Async
     public void sendMailForgotPassword(String codeResetPass, String email, String fullName) {
-        String filePath = "./src/main/resources/email/mailTemplate.html";
         try {
-            String htmlTemplate = HTMLTemplateReader.readTemplate(filePath);
-            String htmlBody = htmlTemplate.replace("{{ fullName }}", fullName)
-                    .replace("{{ code }}", codeResetPass);
-            String subject = "Forgot password!!!";
+            Map<String, String> model = new HashMap<>();
+            model.put("fullName", fullName);
+            model.put("code", codeResetPass);
+            String htmlBody = mailTemplateEngine.render("mailTemplate.html", model);
+            String subject = mailTemplateEngine.subject("forgot-password", Map.of());
             sendMail(htmlBody, subject, email, true);
         } catch (Exception e) {
             log.error("Failed to send mail reset password: {}", e.getMessage(), e);
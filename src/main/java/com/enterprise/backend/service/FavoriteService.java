@@ -0,0 +1,132 @@
+package com.enterprise.backend.service;
+
+import com.enterprise.backend.exception.EnterpriseBackendException;
+import com.enterprise.backend.model.entity.FavoriteProduct;
+import com.enterprise.backend.model.entity.QOrders;
+import com.enterprise.backend.model.entity.QProductOrder;
+import com.enterprise.backend.model.enums.OrderTypeStatus;
+import com.enterprise.backend.model.error.ErrorCode;
+import com.enterprise.backend.service.cache.FavoriteCache;
+import com.enterprise.backend.service.repository.FavoriteProductRepository;
+import com.enterprise.backend.service.repository.ProductRepository;
+import com.enterprise.backend.service.repository.UserRepository;
+import com.enterprise.backend.util.SortedLongSet;
+import com.enterprise.backend.util.TransactionUtils;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Favorite products of users: one {@link FavoriteProduct} row per pair in the database and a sorted id set per
+ * user in memory.
+ */
+@Service
+public class FavoriteService {
+    private static final QOrders qOrders = QOrders.orders;
+    private static final QProductOrder qProductOrder = QProductOrder.productOrder;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final FavoriteProductRepository repo;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final FavoriteCache favoriteCache;
+
+    public FavoriteService(EntityManager em,
+                           FavoriteProductRepository repo,
+                           ProductRepository productRepository,
+                           UserRepository userRepository,
+                           FavoriteCache favoriteCache) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.repo = repo;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.favoriteCache = favoriteCache;
+    }
+
+    public SortedLongSet favoritesOf(String userId) {
+        return favoriteCache.get(userId, id -> SortedLongSet.of(repo.findProductIdsByUserId(id)));
+    }
+
+    public boolean isFavorite(String userId, Long productId) {
+        return favoritesOf(userId).contains(productId);
+    }
+
+    @Transactional
+    public void add(String userId, Long productId) {
+        if (isFavorite(userId, productId)) {
+            return;
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new EnterpriseBackendException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+        // the cached set may be stale (another node, a concurrent add), so the insert itself skips an existing pair
+        repo.insertFavorite(userId, productId, LocalDateTime.now());
+        TransactionUtils.afterCommit(() -> favoriteCache.update(userId, favorites -> favorites.with(productId)));
+    }
+
+    /**
+     * Removes a favorite; the lookups explaining a miss only run when nothing was deleted.
+     */
+    @Transactional
+    public void remove(String userId, Long productId) {
+        if (repo.deleteFavorite(userId, productId) == 0) {
+            if (!productRepository.existsById(productId)) {
+                throw new EnterpriseBackendException(ErrorCode.PRODUCT_NOT_FOUND);
+            }
+            if (!userRepository.existsById(userId)) {
+                throw new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND);
+            }
+            throw new EnterpriseBackendException(ErrorCode.PRODUCT_ORDER_NOT_FOUND);
+        }
+        TransactionUtils.afterCommit(() -> favoriteCache.update(userId, favorites -> favorites.without(productId)));
+    }
+
+    /**
+     * Drops the favorites of a deleted product, for every user.
+     */
+    @Transactional
+    public void removeProduct(Long productId) {
+        if (repo.deleteByProductId(productId) > 0) {
+            TransactionUtils.afterCommit(favoriteCache::clear);
+        }
+    }
+
+    /**
+     * Copies favorites still stored as {@code FAVORITE} product orders into the favorites table and turns those
+     * orders into {@code FAVORITE_HISTORY}, so each runs once.
+     */
+    @Transactional
+    public int migrateLegacyFavorites() {
+        List<Tuple> legacy = queryFactory.select(qProductOrder.user.id, qOrders.product.id)
+                .distinct()
+                .from(qOrders)
+                .innerJoin(qOrders.productOrder, qProductOrder)
+                .where(qProductOrder.type.eq(OrderTypeStatus.FAVORITE),
+                        qProductOrder.user.isNotNull(),
+                        qOrders.product.isNotNull())
+                .fetch();
+        int migrated = 0;
+        for (Tuple row : legacy) {
+            FavoriteProduct favorite = new FavoriteProduct(row.get(qProductOrder.user.id), row.get(qOrders.product.id));
+            if (!repo.existsById(favorite.getId())) {
+                em.persist(favorite);
+                migrated++;
+            }
+        }
+        queryFactory.update(qProductOrder)
+                .set(qProductOrder.type, OrderTypeStatus.FAVORITE_HISTORY)
+                .where(qProductOrder.type.eq(OrderTypeStatus.FAVORITE))
+                .execute();
+        if (migrated > 0) {
+            TransactionUtils.afterCommit(favoriteCache::clear);
+        }
+        return migrated;
+    }
+}
@@ -0,0 +1,24 @@
+package com.enterprise.backend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Service
+public class MetricsService {
+
+    private final Map<String, Supplier<?>> sources = new ConcurrentHashMap<>();
+
+    public void register(String name, Supplier<?> source) {
+        sources.put(name, source);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        sources.forEach((name, source) -> result.put(name, source.get()));
+        return result;
+    }
+}
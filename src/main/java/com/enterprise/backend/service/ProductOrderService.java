@@ -17,8 +17,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityManager;
@@ -55,27 +53,23 @@ public class ProductOrderService extends BaseService<ProductOrder, Long, Product
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND));
 
-        PageRequest pageRequest = PageRequest.of(searchRequest.getPageNumber(), searchRequest.getPageSize());
         JPAQuery<ProductOrder> search = createProductOrderQuery(searchRequest, user.getId());
         log.info("Search product order by me query: {}", search);
 
-        List<ProductOrderResponse> responses = search.fetch()
-                .stream()
-                .map(transformer::toResponse)
-                .collect(Collectors.toList());
-        return new PageImpl<>(responses, pageRequest, responses.size());
+        return fetchPage(searchRequest, search, sortProperties, qProductOrder.id, this::toResponses);
     }
 
     public Page<ProductOrderResponse> adminSearchProductOrder(SearchProductOrderRequest searchRequest, String userId) {
-        PageRequest pageRequest = PageRequest.of(searchRequest.getPageNumber(), searchRequest.getPageSize());
         JPAQuery<ProductOrder> search = createProductOrderQuery(searchRequest, userId);
         log.info("Admin search product order query: {}", search);
 
-        List<ProductOrderResponse> responses = search.fetch()
-                .stream()
+        return fetchPage(searchRequest, search, sortProperties, qProductOrder.id, this::toResponses);
+    }
+
+    private List<ProductOrderResponse> toResponses(List<ProductOrder> productOrders) {
+        return reload(productOrders, ProductOrder::getId, repo::findDistinctWithProductsByIdIn).stream()
                 .map(transformer::toResponse)
                 .collect(Collectors.toList());
-        return new PageImpl<>(responses, pageRequest, responses.size());
     }
 
     private JPAQuery<ProductOrder> createProductOrderQuery(SearchProductOrderRequest searchRequest, String userId) {
@@ -126,8 +120,6 @@ public class ProductOrderService extends BaseService<ProductOrder, Long, Product
             query.where(qProductOrder.updatedDate.loe(searchRequest.getToModifiedDate()));
         }
 
-        queryPage(searchRequest, query);
-        sortBy(searchRequest.getOrderBy(), searchRequest.getIsDesc(), query, sortProperties);
         return query;
     }
 
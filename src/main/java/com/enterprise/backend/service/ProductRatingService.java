@@ -0,0 +1,100 @@
+package com.enterprise.backend.service;
+
+import com.enterprise.backend.model.entity.QProduct;
+import com.enterprise.backend.model.entity.QReview;
+import com.enterprise.backend.service.cache.ProductCache;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.transaction.Transactional;
+import java.util.List;
+
+/**
+ * Keeps the per-star review counts and the average rate of each product up to date in SQL, so a new review costs
+ * one update whatever the number of reviews already written.
+ */
+@Service
+public class ProductRatingService {
+    private static final QProduct qProduct = QProduct.product;
+    private static final QReview qReview = QReview.review;
+    private static final List<NumberPath<Long>> STARS =
+            List.of(qProduct.rating1, qProduct.rating2, qProduct.rating3, qProduct.rating4, qProduct.rating5);
+
+    private final JPAQueryFactory queryFactory;
+    private final ProductCache productCache;
+
+    public ProductRatingService(EntityManager em, ProductCache productCache) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.productCache = productCache;
+    }
+
+    /**
+     * Counts one more review of {@code rate} stars. A product not yet backfilled is left alone; the backfill will
+     * count the review from the table.
+     */
+    public void addRating(Long productId, int rate) {
+        NumberPath<Long> star = STARS.get(rate - 1);
+        NumberExpression<Long> count = qProduct.rating1.add(qProduct.rating2).add(qProduct.rating3)
+                .add(qProduct.rating4).add(qProduct.rating5);
+        NumberExpression<Long> sum = qProduct.rating1.add(qProduct.rating2.multiply(2L)).add(qProduct.rating3.multiply(3L))
+                .add(qProduct.rating4.multiply(4L)).add(qProduct.rating5.multiply(5L));
+        // MySQL evaluates SET assignments left to right, so the average is computed before the star is bumped
+        queryFactory.update(qProduct)
+                .set(qProduct.rate, sum.add((long) rate).castToNum(Double.class).divide(count.add(1L)))
+                .set(star, star.add(1L))
+                .where(qProduct.id.eq(productId), star.isNotNull())
+                .execute();
+        productCache.evict(productId);
+    }
+
+    public List<Long> findProductIdsWithoutRating(int limit) {
+        return queryFactory.select(qProduct.id)
+                .from(qProduct)
+                .where(qProduct.rating1.isNull())
+                .orderBy(qProduct.id.asc())
+                .limit(limit)
+                .fetch();
+    }
+
+    /**
+     * Computes the star counts of a product from its reviews. The product row stays locked meanwhile, so a review
+     * added concurrently is counted either here or by {@link #addRating}, never twice.
+     */
+    @Transactional
+    public boolean backfill(Long productId) {
+        Long locked = queryFactory.select(qProduct.id)
+                .from(qProduct)
+                .where(qProduct.id.eq(productId), qProduct.rating1.isNull())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetchFirst();
+        if (locked == null) {
+            return false;
+        }
+        long[] stars = new long[STARS.size()];
+        queryFactory.select(qReview.rate, qReview.count())
+                .from(qReview)
+                .where(qReview.product.id.eq(productId), qReview.rate.between(1, STARS.size()))
+                .groupBy(qReview.rate)
+                .fetch()
+                .forEach(tuple -> stars[tuple.get(qReview.rate) - 1] = tuple.get(qReview.count()));
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < stars.length; i++) {
+            count += stars[i];
+            sum += (i + 1) * stars[i];
+        }
+        var update = queryFactory.update(qProduct)
+                .set(qProduct.rate, count == 0 ? 0.0 : (double) sum / count)
+                .where(qProduct.id.eq(productId));
+        for (int i = 0; i < stars.length; i++) {
+            update.set(STARS.get(i), stars[i]);
+        }
+        update.execute();
+        productCache.evict(productId);
+        return true;
+    }
+}
@@ -7,28 +7,43 @@ import com.enterprise.backend.model.enums.OrderTypeStatus;
 import com.enterprise.backend.model.error.ErrorCode;
 import com.enterprise.backend.model.request.ProductOrderRequest;
 import com.enterprise.backend.model.request.ProductRequest;
+import com.enterprise.backend.model.request.SearchProductOrderRequest;
 import com.enterprise.backend.model.request.SearchProductRequest;
+import com.enterprise.backend.model.response.CursorPage;
+import com.enterprise.backend.model.response.ProductFacetsResponse;
+import com.enterprise.backend.model.response.ProductOrderResponse;
 import com.enterprise.backend.model.response.ProductResponse;
+import com.enterprise.backend.model.response.ProductSearchPage;
+import com.enterprise.backend.model.response.UploadResponse;
 import com.enterprise.backend.security.SecurityUtil;
 import com.enterprise.backend.service.base.BaseService;
+import com.enterprise.backend.service.cache.ProductCache;
+import com.enterprise.backend.service.cache.ReviewCache;
+import com.enterprise.backend.service.image.ImageDerivativeService;
+import com.enterprise.backend.service.image.ImageStorage;
+import com.enterprise.backend.service.search.ProductSearchIndex;
 import com.enterprise.backend.service.repository.*;
 import com.enterprise.backend.service.transfomer.ProductOrderTransformer;
 import com.enterprise.backend.service.transfomer.ProductTransformer;
+import com.enterprise.backend.util.SortedLongSet;
+import com.enterprise.backend.util.TransactionUtils;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
 import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.BeanUtils;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -36,14 +51,12 @@ import org.springframework.web.multipart.MultipartFile;
 import javax.persistence.EntityManager;
 import javax.servlet.http.HttpServletRequest;
 import javax.transaction.Transactional;
-import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -51,31 +64,64 @@ import java.util.stream.Collectors;
 public class ProductService extends BaseService<Product, Long, ProductRepository, ProductTransformer, ProductRequest, ProductResponse> {
 
     private static final QProduct qProduct = QProduct.product;
+    private static final QOrders qOrders = QOrders.orders;
+    private static final QProductOrder qProductOrder = QProductOrder.productOrder;
     private static final Map<String, ComparableExpressionBase<?>> sortProperties = new HashMap<>();
+    private static final String ORDER_BY_RELEVANCE = "relevance";
 
-    private final EmailService emailService;
     private final CategoryRepository categoryRepository;
     private final OrderRepository orderRepository;
+    private final OrderNotificationRepository orderNotificationRepository;
     private final ProductOrderRepository productOrderRepository;
     private final ProductOrderTransformer productOrderTransformer;
     private final UserRepository userRepository;
+    private final ProductCache productCache;
+    private final ReviewCache reviewCache;
+    private final FavoriteService favoriteService;
+    private final ImageStorage imageStorage;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductOrderService productOrderService;
+    private final ReviewService reviewService;
+
+    @Value("${app.search.facets.price-buckets:}")
+    private List<Long> priceBuckets;
+
+    @Value("${app.search.id-chunk-size:1000}")
+    private int idChunkSize;
 
     protected ProductService(ProductRepository repo,
                              ProductTransformer transformer,
                              EntityManager em,
-                             EmailService emailService,
                              ProductOrderTransformer productOrderTransformer,
                              CategoryRepository categoryRepository,
                              OrderRepository orderRepository,
+                             OrderNotificationRepository orderNotificationRepository,
                              ProductOrderRepository productOrderRepository,
-                             UserRepository userRepository) {
+                             UserRepository userRepository,
+                             ProductCache productCache,
+                             ReviewCache reviewCache,
+                             FavoriteService favoriteService,
+                             ImageStorage imageStorage,
+                             ImageDerivativeService imageDerivativeService,
+                             ProductSearchIndex productSearchIndex,
+                             ProductOrderService productOrderService,
+                             ReviewService reviewService) {
         super(repo, transformer, em);
-        this.emailService = emailService;
         this.productOrderTransformer = productOrderTransformer;
         this.categoryRepository = categoryRepository;
         this.orderRepository = orderRepository;
+        this.orderNotificationRepository = orderNotificationRepository;
         this.productOrderRepository = productOrderRepository;
         this.userRepository = userRepository;
+        this.productCache = productCache;
+        this.reviewCache = reviewCache;
+        this.favoriteService = favoriteService;
+        this.imageStorage = imageStorage;
+        this.imageDerivativeService = imageDerivativeService;
+        this.productSearchIndex = productSearchIndex;
+        this.productOrderService = productOrderService;
+        this.reviewService = reviewService;
         sortProperties.put(Product.Fields.id, qProduct.id);
         sortProperties.put(Product.Fields.price, qProduct.price);
         sortProperties.put(Product.Fields.rate, qProduct.rate);
@@ -96,7 +142,11 @@ public class ProductService extends BaseService<Product, Long, ProductRepository
 
         executeCategory(productRequest, product);
 
-        return transformer.toResponse(repo.save(product));
+        Product saved = repo.save(product);
+        productCache.evict(saved.getId());
+        evictCounts();
+        TransactionUtils.afterCommit(() -> productSearchIndex.index(saved.getId(), saved.getTitle(), saved.getDescription()));
+        return transformer.toResponse(saved);
     }
 
     @Transactional
@@ -110,17 +160,132 @@ public class ProductService extends BaseService<Product, Long, ProductRepository
         BeanUtils.copyProperties(productRequest, product);
         executeCategory(productRequest, product);
 
-        return transformer.toResponse(repo.save(product));
+        Product saved = repo.save(product);
+        productCache.evict(id);
+        evictCounts();
+        TransactionUtils.afterCommit(() -> productSearchIndex.index(id, saved.getTitle(), saved.getDescription()));
+        return transformer.toResponse(saved);
     }
 
     @Transactional
     public void deleteProduct(Long id) {
         Product product = getOrElseThrow(id);
         repo.delete(product);
+        productCache.evict(id);
+        reviewCache.evict(id);
+        evictCounts();
+        reviewService.evictCounts();
+        favoriteService.removeProduct(id);
+        TransactionUtils.afterCommit(() -> productSearchIndex.remove(id));
     }
 
     public ProductResponse getById(Long id) {
-        Product product = getOrElseThrow(id);
+        var result = productCache.get(id, this::loadProductResponse);
+
+        var userId = SecurityUtil.getAuthenticatedUsername();
+        if (StringUtils.isNotEmpty(userId)) {
+            result.setFavorite(favoriteService.isFavorite(userId, id));
+        }
+        return result;
+    }
+
+    /**
+     * The favorites of a user in the shape favorites had when they were stored as orders: one FAVORITE order per
+     * product, carrying the user's contact details, without ids. The order filters match those details, status NEW
+     * and type FAVORITE; ordering by any date or by id follows the date the product was added.
+     */
+    public Page<ProductOrderResponse> searchFavorites(SearchProductOrderRequest searchRequest, String userId) {
+        normalizePage(searchRequest);
+        PageRequest pageable = PageRequest.of(searchRequest.getPageNumber(), searchRequest.getPageSize());
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND));
+        if (!isFavoriteOrderOf(searchRequest, user)) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
+
+        QFavoriteProduct qFavorite = QFavoriteProduct.favoriteProduct;
+        JPAQuery<?> query = queryFactory.from(qFavorite).where(qFavorite.id.userId.eq(userId));
+        LocalDateTime from = latest(searchRequest.getFromCreatedDate(), searchRequest.getFromModifiedDate());
+        LocalDateTime to = earliest(searchRequest.getToCreatedDate(), searchRequest.getToModifiedDate());
+        if (from != null) {
+            query.where(qFavorite.createdDate.goe(from));
+        }
+        if (to != null) {
+            query.where(qFavorite.createdDate.loe(to));
+        }
+        Order direction = Boolean.FALSE.equals(searchRequest.getIsDesc()) ? Order.ASC : Order.DESC;
+        List<Tuple> favorites = query.clone()
+                .select(qFavorite.id.productId, qFavorite.createdDate)
+                .orderBy(new OrderSpecifier<>(direction, qFavorite.createdDate),
+                        new OrderSpecifier<>(direction, qFavorite.id.productId))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        Map<Long, ProductResponse> products = new HashMap<>();
+        if (!favorites.isEmpty()) {
+            repo.findWithCategoriesByIdIn(favorites.stream().map(row -> row.get(qFavorite.id.productId)).collect(Collectors.toList()))
+                    .forEach(product -> products.put(product.getId(), toResponseWithCategories(product)));
+        }
+        List<ProductOrderResponse> content = new ArrayList<>();
+        for (Tuple favorite : favorites) {
+            ProductResponse product = products.get(favorite.get(qFavorite.id.productId));
+            if (product != null) {
+                product.setFavorite(true);
+                content.add(toFavoriteOrder(user, product, favorite.get(qFavorite.createdDate)));
+            }
+        }
+        return PageableExecutionUtils.getPage(content, pageable, () -> query.clone().select(qFavorite.count()).fetchOne());
+    }
+
+    private static boolean isFavoriteOrderOf(SearchProductOrderRequest searchRequest, User user) {
+        return (searchRequest.getStatus() == null || OrderStatus.NEW.equals(searchRequest.getStatus()))
+                && (searchRequest.getType() == null || OrderTypeStatus.FAVORITE.equals(searchRequest.getType()))
+                && matches(user.getFullName(), searchRequest.getReceiverFullName())
+                && matches(user.getEmail(), searchRequest.getEmail())
+                && matches(user.getPhone(), searchRequest.getPhoneNumber())
+                && matches(user.getAddress(), searchRequest.getAddressDetail());
+    }
+
+    private static boolean matches(String value, String filter) {
+        return StringUtils.isEmpty(filter) || StringUtils.containsIgnoreCase(value, filter);
+    }
+
+    private static LocalDateTime latest(LocalDateTime first, LocalDateTime second) {
+        return first == null || (second != null && second.isAfter(first)) ? second : first;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime first, LocalDateTime second) {
+        return first == null || (second != null && second.isBefore(first)) ? second : first;
+    }
+
+    private static ProductOrderResponse toFavoriteOrder(User user, ProductResponse product, LocalDateTime addedDate) {
+        ProductOrderResponse.OrderResponse order = new ProductOrderResponse.OrderResponse();
+        order.setProduct(product);
+
+        ProductOrderResponse response = new ProductOrderResponse();
+        response.setReceiverFullName(user.getFullName());
+        response.setEmail(user.getEmail());
+        response.setPhoneNumber(user.getPhone());
+        response.setAddressDetail(user.getAddress());
+        response.setNote("Favorite product!");
+        response.setStatus(OrderStatus.NEW.name());
+        response.setType(OrderTypeStatus.FAVORITE.name());
+        response.setOrders(Set.of(order));
+        response.setCreatedBy(user.getId());
+        response.setUpdatedBy(user.getId());
+        response.setCreatedDate(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(addedDate));
+        response.setUpdatedDate(response.getCreatedDate());
+        return response;
+    }
+
+    private ProductResponse loadProductResponse(Long id) {
+        Product product = repo.findWithCategoriesById(id)
+                .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.NOT_FOUND));
+        return toResponseWithCategories(product);
+    }
+
+    private ProductResponse toResponseWithCategories(Product product) {
         var result = transformer.toResponse(product);
 
         List<ProductResponse.OfCategory> ofCategories = new ArrayList<>();
@@ -132,44 +297,223 @@ public class ProductService extends BaseService<Product, Long, ProductRepository
             ofCategories.add(ofCategory);
         });
 
-        var userId = SecurityUtil.getCurrentUsername();
-        if (StringUtils.isNotEmpty(userId)) {
-            var user = userRepository.findById(userId);
-            user.ifPresent(u -> {
-                var orderOpt = orderRepository.findByProductAndProductOrder_UserAndProductOrder_Type(product, u, OrderTypeStatus.FAVORITE);
-                orderOpt.ifPresent(orders -> {
-                    if (!orders.isEmpty()) {
-                        result.setFavorite(true);
-                    }
-                });
-            });
-        }
-
         result.setOfCategories(ofCategories);
         return result;
     }
 
     public List<ProductResponse> cacheListProducts(List<Long> productIds) {
         var products = repo.findAllById(productIds);
-        return products.stream().map(transformer::toResponse).collect(Collectors.toList());
+        List<ProductResponse> responses = products.stream().map(transformer::toResponse).collect(Collectors.toList());
+        markFavorites(responses);
+        return responses;
+    }
+
+    /**
+     * Sets the favorite flag of a whole list for the current user from their favorite set, loaded with at most one
+     * query.
+     */
+    private void markFavorites(List<ProductResponse> responses) {
+        String userId = SecurityUtil.getAuthenticatedUsername();
+        if (responses.isEmpty() || StringUtils.isEmpty(userId)) {
+            return;
+        }
+        SortedLongSet favorites = favoriteService.favoritesOf(userId);
+        responses.forEach(response -> response.setFavorite(favorites.contains(response.getId())));
     }
 
     public Page<ProductResponse> search(SearchProductRequest searchProductRequest) {
-        PageRequest of = PageRequest.of(searchProductRequest.getPageNumber(), searchProductRequest.getPageSize());
-        JPAQuery<Product> search = searchQuery(searchProductRequest);
-        log.info("searchProduct query: {}", search);
+        List<Long> rankedIds = rankedIds(searchProductRequest);
+
+        Page<ProductResponse> page;
+        if (rankedIds != null && ORDER_BY_RELEVANCE.equals(searchProductRequest.getOrderBy())) {
+            page = searchByRelevance(searchProductRequest, rankedIds);
+        } else if (rankedIds != null && rankedIds.size() > idChunkSize) {
+            page = fetchPage(searchProductRequest, rankedIds, idChunkSize, ids -> searchQuery(searchProductRequest, ids),
+                    sortProperties, qProduct.id, this::toResponses);
+        } else {
+            JPAQuery<Tuple> search = searchQuery(searchProductRequest, rankedIds);
+            log.info("searchProduct query: {}", search);
+            page = fetchPage(searchProductRequest, search, sortProperties, qProduct.id, this::toResponses);
+        }
+        if (!Boolean.TRUE.equals(searchProductRequest.getFacets())) {
+            return page;
+        }
+        return new ProductSearchPage(page.getContent(), page.getPageable(), page.getTotalElements(),
+                page instanceof CursorPage ? ((CursorPage<ProductResponse>) page).getNextCursor() : null,
+                facets(searchProductRequest, rankedIds));
+    }
 
-        List<ProductResponse> responses = search.fetch()
-                .stream()
-                .map(transformer::toResponse)
+    /**
+     * Index matches for the title filter, or {@code null} to filter with SQL {@code like} while the index is not
+     * built yet. The ids end up in {@code in} lists of the page, count and facet queries, at most
+     * {@code app.search.id-chunk-size} per query; a broad match (a one-letter prefix) takes several queries.
+     */
+    private List<Long> rankedIds(SearchProductRequest searchRequest) {
+        if (StringUtils.isEmpty(searchRequest.getTitle()) || !productSearchIndex.isReady()) {
+            return null;
+        }
+        return productSearchIndex.search(searchRequest.getTitle());
+    }
+
+    /**
+     * Pages the index ranking restricted to the rows passing the other filters; cursors do not apply here.
+     */
+    private Page<ProductResponse> searchByRelevance(SearchProductRequest searchRequest, List<Long> rankedIds) {
+        normalizePage(searchRequest);
+        Set<Long> matching = new HashSet<>();
+        for (List<Long> chunk : chunks(rankedIds, idChunkSize)) {
+            matching.addAll(searchQuery(searchRequest, chunk).select(qProduct.id).fetch());
+        }
+        List<Long> ids = rankedIds.stream().filter(matching::contains).collect(Collectors.toList());
+
+        int from = Math.min(searchRequest.getPageNumber() * searchRequest.getPageSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + searchRequest.getPageSize(), ids.size()));
+        List<ProductResponse> responses = new ArrayList<>();
+        if (!pageIds.isEmpty()) {
+            Map<Long, Integer> rank = new HashMap<>();
+            pageIds.forEach(id -> rank.put(id, rank.size()));
+            responses = toResponses(searchQuery(searchRequest, pageIds).fetch());
+            responses.sort(Comparator.comparing(response -> rank.get(response.getId())));
+        }
+        return new PageImpl<>(responses, PageRequest.of(searchRequest.getPageNumber(), searchRequest.getPageSize()), ids.size());
+    }
+
+    private List<ProductResponse> toResponses(List<Tuple> rows) {
+        List<ProductResponse> responses = rows.stream()
+                .map(this::toResponse)
                 .collect(Collectors.toList());
-        return new PageImpl<>(responses, of, responses.size());
+        fillCategories(responses);
+        markFavorites(responses);
+        return responses;
+    }
+
+    private ProductResponse toResponse(Tuple tuple) {
+        ProductResponse response = new ProductResponse();
+        response.setId(tuple.get(qProduct.id));
+        response.setTitle(tuple.get(qProduct.title));
+        response.setDescription(tuple.get(qProduct.description));
+        response.setImagesUrl(tuple.get(qProduct.imagesUrl));
+        response.setPrice(tuple.get(qProduct.price));
+        response.setQuantity(tuple.get(qProduct.quantity));
+        response.setRate(tuple.get(qProduct.rate));
+        response.setRatingDistribution(Product.ratingDistribution(tuple.get(qProduct.rating1), tuple.get(qProduct.rating2),
+                tuple.get(qProduct.rating3), tuple.get(qProduct.rating4), tuple.get(qProduct.rating5)));
+        response.setCreatedBy(tuple.get(qProduct.createdBy));
+        response.setUpdatedBy(tuple.get(qProduct.updatedBy));
+        LocalDateTime createdDate = tuple.get(qProduct.createdDate);
+        if (createdDate != null) {
+            response.setCreatedDate(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(createdDate));
+        }
+        LocalDateTime updatedDate = tuple.get(qProduct.updatedDate);
+        if (updatedDate != null) {
+            response.setUpdatedDate(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(updatedDate));
+        }
+        return response;
+    }
+
+    /**
+     * Loads the categories of a whole page with one scalar query instead of walking entity collections.
+     */
+    private void fillCategories(List<ProductResponse> responses) {
+        if (responses.isEmpty()) {
+            return;
+        }
+        Map<Long, List<ProductResponse.OfCategory>> categoriesByProduct = new HashMap<>();
+        QCategory qCategory = QCategory.category;
+        queryFactory.select(qProduct.id, qCategory.id, qCategory.name, qCategory.priority)
+                .from(qProduct)
+                .innerJoin(qProduct.categories, qCategory)
+                .where(qProduct.id.in(responses.stream().map(ProductResponse::getId).collect(Collectors.toList())))
+                .fetch()
+                .forEach(tuple -> {
+                    var ofCategory = new ProductResponse.OfCategory();
+                    ofCategory.setId(tuple.get(qCategory.id));
+                    ofCategory.setName(tuple.get(qCategory.name));
+                    ofCategory.setPriority(tuple.get(qCategory.priority));
+                    categoriesByProduct.computeIfAbsent(tuple.get(qProduct.id), k -> new ArrayList<>()).add(ofCategory);
+                });
+        responses.forEach(response ->
+                response.setOfCategories(categoriesByProduct.getOrDefault(response.getId(), new ArrayList<>())));
+    }
+
+    private JPAQuery<Tuple> searchQuery(SearchProductRequest searchRequest, List<Long> rankedIds) {
+        JPAQuery<Tuple> query = queryFactory.select(qProduct.id, qProduct.title, qProduct.description,
+                        qProduct.imagesUrl, qProduct.price, qProduct.quantity, qProduct.rate,
+                        qProduct.rating1, qProduct.rating2, qProduct.rating3, qProduct.rating4, qProduct.rating5,
+                        qProduct.createdBy, qProduct.updatedBy, qProduct.createdDate, qProduct.updatedDate)
+                .from(qProduct);
+        return filter(query, searchRequest, rankedIds, true, true);
     }
 
-    private JPAQuery<Product> searchQuery(SearchProductRequest searchRequest) {
-        JPAQuery<Product> query = queryFactory.selectFrom(qProduct);
+    /**
+     * Counts the products matching the search per category and per price bucket. Each facet ignores its own
+     * filter, so the storefront can show the alternatives to the current selection. Index matches are counted
+     * one id chunk at a time; a product falls in a single chunk, so the chunk counts add up.
+     */
+    private ProductFacetsResponse facets(SearchProductRequest searchRequest, List<Long> rankedIds) {
+        ProductFacetsResponse facets = new ProductFacetsResponse();
+        List<List<Long>> idChunks = rankedIds != null ? chunks(rankedIds, idChunkSize) : Collections.singletonList(null);
+
+        QCategory facetCategory = new QCategory("facetCategory");
+        Map<Long, ProductFacetsResponse.CategoryFacet> categoryFacets = new LinkedHashMap<>();
+        for (List<Long> ids : idChunks) {
+            filter(queryFactory.select(facetCategory.id, facetCategory.name, qProduct.id.countDistinct())
+                            .from(qProduct)
+                            .innerJoin(qProduct.categories, facetCategory),
+                    searchRequest, ids, false, true)
+                    .groupBy(facetCategory.id, facetCategory.name)
+                    .fetch()
+                    .forEach(tuple -> {
+                        var categoryFacet = categoryFacets.computeIfAbsent(tuple.get(facetCategory.id), id -> {
+                            var created = new ProductFacetsResponse.CategoryFacet();
+                            created.setId(id);
+                            created.setName(tuple.get(facetCategory.name));
+                            created.setCount(0L);
+                            return created;
+                        });
+                        categoryFacet.setCount(categoryFacet.getCount() + tuple.get(qProduct.id.countDistinct()));
+                    });
+        }
+        facets.setCategories(new ArrayList<>(categoryFacets.values()));
+
+        List<Long> bounds = (CollectionUtils.isEmpty(searchRequest.getPriceBuckets()) ? priceBuckets : searchRequest.getPriceBuckets())
+                .stream().filter(Objects::nonNull).distinct().sorted().collect(Collectors.toList());
+        List<NumberExpression<Long>> bucketSums = new ArrayList<>();
+        for (int i = 0; i <= bounds.size(); i++) {
+            BooleanExpression inBucket = qProduct.price.isNotNull();
+            if (i > 0) {
+                inBucket = inBucket.and(qProduct.price.goe(bounds.get(i - 1)));
+            }
+            if (i < bounds.size()) {
+                inBucket = inBucket.and(qProduct.price.lt(bounds.get(i)));
+            }
+            bucketSums.add(new CaseBuilder().when(inBucket).then(1L).otherwise(0L).sum());
+        }
+        long[] bucketCounts = new long[bucketSums.size()];
+        for (List<Long> ids : idChunks) {
+            Tuple counts = filter(queryFactory.select(bucketSums.toArray(new NumberExpression<?>[0])).from(qProduct),
+                    searchRequest, ids, true, false)
+                    .fetchOne();
+            for (int i = 0; counts != null && i < bucketSums.size(); i++) {
+                Long count = counts.get(bucketSums.get(i));
+                bucketCounts[i] += count != null ? count : 0L;
+            }
+        }
+        List<ProductFacetsResponse.PriceFacet> priceFacets = new ArrayList<>();
+        for (int i = 0; i < bucketSums.size(); i++) {
+            var priceFacet = new ProductFacetsResponse.PriceFacet();
+            priceFacet.setFrom(i > 0 ? bounds.get(i - 1) : null);
+            priceFacet.setTo(i < bounds.size() ? bounds.get(i) : null);
+            priceFacet.setCount(bucketCounts[i]);
+            priceFacets.add(priceFacet);
+        }
+        facets.setPrices(priceFacets);
+        return facets;
+    }
 
-        if (ObjectUtils.isNotEmpty(searchRequest.getCategoryId())) {
+    private <T> JPAQuery<T> filter(JPAQuery<T> query, SearchProductRequest searchRequest, List<Long> rankedIds,
+                                   boolean byCategory, boolean byPrice) {
+        if (byCategory && ObjectUtils.isNotEmpty(searchRequest.getCategoryId())) {
             QCategory qCategory = QCategory.category;
             query.innerJoin(qProduct.categories, qCategory)
                     .where(qCategory.id.eq(searchRequest.getCategoryId()));
@@ -179,15 +523,17 @@ public class ProductService extends BaseService<Product, Long, ProductRepository
             query.where(qProduct.id.eq(searchRequest.getProductId()));
         }
 
-        if (StringUtils.isNotEmpty(searchRequest.getTitle())) {
+        if (rankedIds != null) {
+            query.where(qProduct.id.in(rankedIds));
+        } else if (StringUtils.isNotEmpty(searchRequest.getTitle())) {
             query.where(qProduct.title.containsIgnoreCase(searchRequest.getTitle()));
         }
 
-        if (ObjectUtils.isNotEmpty(searchRequest.getFromPrice())) {
+        if (byPrice && ObjectUtils.isNotEmpty(searchRequest.getFromPrice())) {
             query.where(qProduct.price.goe(searchRequest.getFromPrice()));
         }
 
-        if (ObjectUtils.isNotEmpty(searchRequest.getToPrice())) {
+        if (byPrice && ObjectUtils.isNotEmpty(searchRequest.getToPrice())) {
             query.where(qProduct.price.loe(searchRequest.getToPrice()));
         }
 
@@ -207,36 +553,43 @@ public class ProductService extends BaseService<Product, Long, ProductRepository
             query.where(qProduct.updatedDate.loe(searchRequest.getToModifiedDate()));
         }
 
-        queryPage(searchRequest, query);
-        sortBy(searchRequest.getOrderBy(), searchRequest.getIsDesc(), query, sortProperties);
         return query;
     }
 
     @Transactional
     public void orderProduct(ProductOrderRequest request) {
-        Set<Orders> orders = new HashSet<>();
-        AtomicReference<Integer> quantity = new AtomicReference<>(0);
-        AtomicReference<Long> price = new AtomicReference<>(0L);
-
-        request.getProducts().forEach(orderRequest -> {
-            Product product = getOrElseThrow(orderRequest.getProductId());
-            if (product.getQuantity() < orderRequest.getQuantity()) {
+        Map<Long, Long> requested = new HashMap<>();
+        request.getProducts().forEach(orderRequest ->
+                requested.merge(orderRequest.getProductId(), orderRequest.getQuantity().longValue(), Long::sum));
+
+        Map<Long, Tuple> stock = queryFactory.select(qProduct.id, qProduct.price, qProduct.quantity)
+                .from(qProduct)
+                .where(qProduct.id.in(requested.keySet()))
+                .fetch()
+                .stream()
+                .collect(Collectors.toMap(tuple -> tuple.get(qProduct.id), tuple -> tuple));
+        requested.forEach((productId, quantity) -> {
+            Tuple product = stock.get(productId);
+            if (product == null) {
+                throw new EnterpriseBackendException(ErrorCode.PRODUCT_NOT_FOUND);
+            }
+            Long available = product.get(qProduct.quantity);
+            if (available == null || available < quantity) {
                 throw new EnterpriseBackendException(ErrorCode.QUANTITY_WRONG);
             }
-            product.setQuantity(product.getQuantity() - orderRequest.getQuantity());
-            repo.save(product);
-
-            Orders order = Orders.builder()
-                    .product(product)
-                    .quantity(orderRequest.getQuantity())
-                    .build();
-            orders.add(orderRepository.save(order));
-            quantity.updateAndGet(v -> v + orderRequest.getQuantity());
-            price.updateAndGet(v -> v + (orderRequest.getQuantity() * product.getPrice()));
         });
+        decreaseStock(requested);
+        productCache.evict(requested.keySet());
+
+        int quantity = 0;
+        long price = 0;
+        for (ProductOrderRequest.OrderRequest orderRequest : request.getProducts()) {
+            quantity += orderRequest.getQuantity();
+            price += orderRequest.getQuantity() * stock.get(orderRequest.getProductId()).get(qProduct.price);
+        }
         ProductOrder productOrder = productOrderTransformer.toEntity(request);
-        productOrder.setQuantity(quantity.get());
-        productOrder.setPrice(price.get());
+        productOrder.setQuantity(quantity);
+        productOrder.setPrice(price);
         productOrder.setStatus(OrderStatus.NEW);
         productOrder.setType(OrderTypeStatus.BUY);
 
@@ -247,170 +600,187 @@ public class ProductService extends BaseService<Product, Long, ProductRepository
         if (StringUtils.isNotEmpty(userId)) {
             userRepository.findById(userId).ifPresent(productOrder::setUser);
         }
-        productOrder.setOrders(orders);
         productOrderRepository.save(productOrder);
 
-        orders.forEach(order -> {
-            order.setProductOrder(productOrder);
-            orderRepository.save(order);
-        });
+        orderRepository.insertAll(request.getProducts().stream()
+                .map(orderRequest -> Orders.builder()
+                        .product(repo.getReferenceById(orderRequest.getProductId()))
+                        .productOrder(productOrder)
+                        .quantity(orderRequest.getQuantity())
+                        .build())
+                .collect(Collectors.toList()));
 
-        Set<User> receivers = new HashSet<>();
-        userRepository.findAllAdmin().ifPresent(receivers::addAll);
-        userRepository.findByEmail(request.getEmail()).ifPresentOrElse(receivers::add, () -> {
-            User user = new User();
-            user.setEmail(request.getEmail());
-            user.setAuthorities(Set.of(Authority.builder().role(Authority.Role.ROLE_USER).build()));
-            receivers.add(user);
-        });
-        new Thread(() -> emailService.sendNewOrder(request.getHtmlContent(), receivers)).start();
+        orderNotificationRepository.save(OrderNotification.newOrder(productOrder.getId()));
+        productOrderService.evictCounts();
+    }
+
+    /**
+     * Takes every requested quantity in one conditional UPDATE; if any product no longer has enough stock
+     * nothing is taken.
+     */
+    private void decreaseStock(Map<Long, Long> requested) {
+        NumberExpression<Long> taken = stockCase(requested);
+        long updated = queryFactory.update(qProduct)
+                .set(qProduct.quantity, qProduct.quantity.subtract(taken))
+                .set(qProduct.updatedDate, LocalDateTime.now())
+                .where(qProduct.id.in(requested.keySet()), qProduct.quantity.goe(taken))
+                .execute();
+        if (updated != requested.size()) {
+            throw new EnterpriseBackendException(ErrorCode.QUANTITY_WRONG);
+        }
+    }
+
+    private void increaseStock(Map<Long, Long> released) {
+        if (released.isEmpty()) {
+            return;
+        }
+        queryFactory.update(qProduct)
+                .set(qProduct.quantity, qProduct.quantity.add(stockCase(released)))
+                .set(qProduct.updatedDate, LocalDateTime.now())
+                .where(qProduct.id.in(released.keySet()))
+                .execute();
+    }
+
+    private NumberExpression<Long> stockCase(Map<Long, Long> quantities) {
+        CaseBuilder.Cases<Long, NumberExpression<Long>> cases = null;
+        for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+            cases = cases == null
+                    ? new CaseBuilder().when(qProduct.id.eq(entry.getKey())).then(entry.getValue())
+                    : cases.when(qProduct.id.eq(entry.getKey())).then(entry.getValue());
+        }
+        return cases.otherwise(0L);
     }
 
-    @Transactional
     public void addFavoriteProduct(Long productId) {
         String userId = SecurityUtil.getCurrentUsername();
         if (StringUtils.isEmpty(userId)) {
             throw new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND);
         }
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND));
-
-        Product product = getOrElseThrow(productId);
-
-        Orders order = Orders.builder()
-                .product(product)
-                .build();
-
-        Set<Orders> orders = new HashSet<>();
-        orders.add(orderRepository.save(order));
-        ProductOrder productOrder = ProductOrder.builder()
-                .orders(orders)
-                .email(user.getEmail())
-                .note("Favorite product!")
-                .type(OrderTypeStatus.FAVORITE)
-                .addressDetail(user.getAddress())
-                .phoneNumber(user.getPhone())
-                .receiverFullName(user.getFullName())
-                .user(user)
-                .build();
-
-        productOrderRepository.save(productOrder);
-
-        order.setProductOrder(productOrder);
-        orderRepository.save(order);
+        favoriteService.add(userId, productId);
     }
 
-    @Transactional
     public void deleteProductFavorite(Long productId) {
         String userId = SecurityUtil.getCurrentUsername();
         if (StringUtils.isEmpty(userId)) {
             throw new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND);
         }
-
-        var product = getOrElseThrow(productId);
-        var user = userRepository.findById(userId)
-                .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND));
-        var orders = orderRepository.findByProductAndProductOrder_UserAndProductOrder_Type(product, user, OrderTypeStatus.FAVORITE)
-                .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.PRODUCT_ORDER_NOT_FOUND));
-
-        orders.forEach(order -> {
-            order.getProductOrder().setType(OrderTypeStatus.FAVORITE_HISTORY);
-            productOrderRepository.save(order.getProductOrder());
-        });
-        orderRepository.saveAll(orders);
+        favoriteService.remove(userId, productId);
     }
 
     @Transactional
     public void updateOrderStatus(Long productOrderId, OrderStatus status) {
-        var productOrder = productOrderRepository.findById(productOrderId)
-                .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.ORDER_NOT_FOUND));
+        if (!productOrderRepository.existsById(productOrderId)) {
+            throw new EnterpriseBackendException(ErrorCode.ORDER_NOT_FOUND);
+        }
+        // cancelling released the reserved stock, so a cancelled order stays cancelled; repeating the cancel is a no-op
+        EnumSet<OrderStatus> open = EnumSet.complementOf(EnumSet.of(OrderStatus.CANCELLED));
         switch (status) {
             case CANCELLED:
-                productOrder.getOrders().forEach(order -> {
-                    var product = order.getProduct();
-                    product.setQuantity(product.getQuantity() + order.getQuantity());
-                    repo.save(product);
-                });
+                if (!cancelOrder(productOrderId, open)) {
+                    return;
+                }
                 break;
             case NEW:
             case PENDING:
             case COMPLETED:
             default:
+                if (productOrderRepository.updateProductOrderByStatus(productOrderId, status, open) == 0) {
+                    throw new EnterpriseBackendException(ErrorCode.ORDER_CANCELLED);
+                }
                 break;
         }
-        productOrderRepository.updateProductOrderByStatus(productOrder.getId(), status);
-        emailService.sendUpdateOrder(productOrder.getHtmlContent(), status, productOrder.getEmail());
+        orderNotificationRepository.save(OrderNotification.statusChanged(productOrderId, status));
+        productOrderService.evictCounts();
+    }
+
+    public List<Long> findExpiredOrderIds(LocalDateTime createdBefore, int limit) {
+        return queryFactory.select(qProductOrder.id)
+                .from(qProductOrder)
+                .where(qProductOrder.status.eq(OrderStatus.NEW),
+                        qProductOrder.type.eq(OrderTypeStatus.BUY),
+                        qProductOrder.createdDate.before(createdBefore))
+                .orderBy(qProductOrder.id.asc())
+                .limit(limit)
+                .fetch();
+    }
+
+    @Transactional
+    public boolean expireOrder(Long productOrderId) {
+        if (!productOrderRepository.existsById(productOrderId)) {
+            throw new EnterpriseBackendException(ErrorCode.ORDER_NOT_FOUND);
+        }
+        if (!cancelOrder(productOrderId, EnumSet.of(OrderStatus.NEW))) {
+            return false;
+        }
+        orderNotificationRepository.save(OrderNotification.statusChanged(productOrderId, OrderStatus.CANCELLED));
+        productOrderService.evictCounts();
+        return true;
+    }
+
+    private boolean cancelOrder(Long productOrderId, Collection<OrderStatus> current) {
+        if (productOrderRepository.updateProductOrderByStatus(productOrderId, OrderStatus.CANCELLED, current) == 0) {
+            return false;
+        }
+        Map<Long, Long> reserved = new HashMap<>();
+        queryFactory.select(qOrders.product.id, qOrders.quantity.sum())
+                .from(qOrders)
+                .where(qOrders.productOrder.id.eq(productOrderId))
+                .groupBy(qOrders.product.id)
+                .fetch()
+                .forEach(tuple -> reserved.put(tuple.get(qOrders.product.id), tuple.get(qOrders.quantity.sum()).longValue()));
+        increaseStock(reserved);
+        productCache.evict(reserved.keySet());
+        return true;
     }
 
     private void executeCategory(ProductRequest productRequest, Product product) {
         if (!CollectionUtils.isEmpty(productRequest.getCategoryIds())) {
             List<Category> categories = categoryRepository.findAllById(productRequest.getCategoryIds());
-            categories.forEach(category -> category.getProducts().add(product));
             if (!CollectionUtils.isEmpty(categories)) {
                 product.setCategories(new HashSet<>(categories));
             }
-            categoryRepository.saveAll(categories);
         }
     }
 
     public String uploadFiles(HttpServletRequest request,
                               MultipartFile file) {
-        if (file != null) {
-            try {
-                File imageDir = new File("./image");
-
-                String originalFilename = file.getOriginalFilename();
-                if (originalFilename == null) {
-                    log.info("File originalName not found!");
-                    return null;
-                }
-
-                if (!imageDir.exists()) {
-                    log.info("Create imageDir: {} - {}", file.getOriginalFilename(), imageDir.mkdirs());
-                }
-
-                String fileName = org.springframework.util.StringUtils.cleanPath(originalFilename);
-                Path path = Paths.get(imageDir.getAbsolutePath() + File.separator + "product_" + fileName);
-                int i = 0;
-                while (path.toFile().exists()) {
-                    path = Paths.get(imageDir.getAbsolutePath() + File.separator + "product_" + i + "_" + fileName);
-                    i++;
-                }
-                Files.write(path, file.getBytes());
+        return file != null ? upload(request, file).getUrl() : null;
+    }
 
-                String domain = request.getScheme() + "://" +
-                        (request.getServerName().contains("localhost") ? (request.getServerName() + ":" + request.getLocalPort()) : request.getServerName())
-                        + "/api/product";
+    /**
+     * Stores each file in turn, straight from its multipart stream; a file that fails is reported without a URL and
+     * does not stop the others.
+     */
+    public List<UploadResponse> uploadFileBatch(HttpServletRequest request, List<MultipartFile> files) {
+        return files.stream()
+                .map(file -> upload(request, file))
+                .collect(Collectors.toList());
+    }
 
-                return domain + "/images/" + path.getFileName();
-            } catch (IOException e) {
-                log.error("Error uploading file: {}", e.getMessage(), e);
-            }
+    private UploadResponse upload(HttpServletRequest request, MultipartFile file) {
+        long start = System.nanoTime();
+        String originalFilename = file.getOriginalFilename();
+        UploadResponse response = new UploadResponse(originalFilename, null, file.getSize(), 0);
+        if (originalFilename == null) {
+            log.info("File originalName not found!");
+            return response;
         }
-        return null;
-    }
+        // Tomcat has already spooled the part to disk, so this reads the spooled file rather than the heap
+        try (InputStream content = file.getInputStream()) {
+            String key = imageStorage.put(content, originalFilename);
+            imageDerivativeService.generateAsync(key);
 
-    public ResponseEntity<Resource> getFile(String fileName) {
-        try {
-            Path filePath = Paths.get("image").resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
+            String domain = request.getScheme() + "://" +
+                    (request.getServerName().contains("localhost") ? (request.getServerName() + ":" + request.getLocalPort()) : request.getServerName())
+                    + "/api/product";
 
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.valueOf(Files.probeContentType(filePath) != null ?
-                                Files.probeContentType(filePath) : "application/octet-stream"))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
-            }
-        } catch (MalformedURLException e) {
-            log.error("Error getting file: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            response.setUrl(domain + "/images/" + key);
         } catch (IOException e) {
-            log.error("Error determining file type: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            log.error("Error uploading file: {}", e.getMessage(), e);
         }
+        response.setMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Uploaded {} ({} bytes) in {} ms", originalFilename, response.getSize(), response.getMillis());
+        return response;
     }
 
     @Override
@@ -5,24 +5,29 @@ import com.enterprise.backend.model.entity.*;
 import com.enterprise.backend.model.error.ErrorCode;
 import com.enterprise.backend.model.request.ReviewRequest;
 import com.enterprise.backend.model.request.SearchRequest;
+import com.enterprise.backend.model.request.SearchReviewRequest;
 import com.enterprise.backend.model.response.ReviewResponse;
 import com.enterprise.backend.service.base.BaseService;
+import com.enterprise.backend.service.cache.ReviewCache;
 import com.enterprise.backend.service.repository.ProductRepository;
 import com.enterprise.backend.service.repository.ReviewRepository;
 import com.enterprise.backend.service.transfomer.ReviewTransformer;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.ComparableExpressionBase;
 import com.querydsl.jpa.impl.JPAQuery;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,42 +36,89 @@ public class ReviewService extends BaseService<Review, Long, ReviewRepository, R
 
     private static final QReview qReview = QReview.review;
     private static final Map<String, ComparableExpressionBase<?>> sortProperties = new HashMap<>();
+    private static final SearchRequest FIRST_PAGE = new SearchReviewRequest();
 
     private final ProductRepository productRepository;
+    private final ReviewCache reviewCache;
 
     protected ReviewService(ReviewRepository repo,
                             ReviewTransformer transformer,
                             EntityManager em,
-                            ProductRepository productRepository) {
+                            ProductRepository productRepository,
+                            ReviewCache reviewCache) {
         super(repo, transformer, em);
         this.productRepository = productRepository;
+        this.reviewCache = reviewCache;
         sortProperties.put(Product.Fields.id, qReview.id);
         sortProperties.put(Auditable.Fields.createdDate, qReview.createdDate);
         sortProperties.put(Auditable.Fields.updatedDate, qReview.updatedDate);
     }
 
+    /**
+     * Reviews of a product read from the review rows alone, the reviewer name being copied there on write. The first
+     * page in default order, the one product pages show, is cached per product.
+     */
     public Page<ReviewResponse> getReviewByProduct(SearchRequest searchRequest, Long productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.PRODUCT_NOT_FOUND));
+        normalizePage(searchRequest);
+        if (isFirstPage(searchRequest)) {
+            return reviewCache.get(productId, id -> searchReviews(searchRequest, id));
+        }
+        return searchReviews(searchRequest, productId);
+    }
+
+    /**
+     * Copies the reviewer name onto reviews written before the column existed.
+     */
+    public int backfillReviewerNames() {
+        return repo.fillMissingReviewerNames();
+    }
+
+    private Page<ReviewResponse> searchReviews(SearchRequest searchRequest, Long productId) {
+        if (!productRepository.existsById(productId)) {
+            throw new EnterpriseBackendException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
 
-        PageRequest of = PageRequest.of(searchRequest.getPageNumber(), searchRequest.getPageSize());
-        JPAQuery<Review> search = searchQuery(searchRequest, product.getId());
+        JPAQuery<Tuple> search = searchQuery(searchRequest, productId);
         log.info("searchReview by product query: {}", search);
 
-        List<ReviewResponse> responses = search.fetch()
-                .stream()
-                .map(transformer::toResponse)
-                .collect(Collectors.toList());
-        return new PageImpl<>(responses, of, responses.size());
+        return fetchPage(searchRequest, search, sortProperties, qReview.id, rows -> rows.stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList()));
+    }
+
+    private boolean isFirstPage(SearchRequest searchRequest) {
+        return StringUtils.isEmpty(searchRequest.getCursor())
+                && searchRequest.getPageNumber() == 0
+                && Objects.equals(searchRequest.getPageSize(), FIRST_PAGE.getPageSize())
+                && Objects.equals(searchRequest.getOrderBy(), FIRST_PAGE.getOrderBy())
+                && Objects.equals(searchRequest.getIsDesc(), FIRST_PAGE.getIsDesc())
+                && searchRequest.getFromCreatedDate() == null
+                && searchRequest.getToCreatedDate() == null
+                && searchRequest.getFromModifiedDate() == null
+                && searchRequest.getToModifiedDate() == null;
+    }
+
+    private ReviewResponse toResponse(Tuple row) {
+        ReviewResponse response = new ReviewResponse();
+        response.setId(row.get(qReview.id));
+        response.setRate(row.get(qReview.rate));
+        response.setComment(row.get(qReview.comment));
+        response.setFullName(row.get(qReview.reviewerName));
+        response.setUserId(row.get(qReview.user.id));
+        LocalDateTime createdDate = row.get(qReview.createdDate);
+        if (createdDate != null) {
+            response.setCreatedDate(Date.from(createdDate.atZone(ZoneId.systemDefault()).toInstant()));
+        }
+        return response;
     }
 
-    private JPAQuery<Review> searchQuery(SearchRequest searchRequest, Long productId) {
-        JPAQuery<Review> query = queryFactory.selectFrom(qReview);
+    private JPAQuery<Tuple> searchQuery(SearchRequest searchRequest, Long productId) {
+        JPAQuery<Tuple> query = queryFactory.select(qReview.id, qReview.rate, qReview.comment, qReview.reviewerName,
+                        qReview.user.id, qReview.createdDate, qReview.updatedDate)
+                .from(qReview);
 
         if (ObjectUtils.isNotEmpty(productId)) {
-            QProduct qProduct = QProduct.product;
-            query.innerJoin(qReview.product, qProduct)
-                    .where(qProduct.id.eq(productId));
+            query.where(qReview.product.id.eq(productId));
         }
 
         if (searchRequest.getToCreatedDate() != null) {
@@ -85,8 +137,6 @@ public class ReviewService extends BaseService<Review, Long, ReviewRepository, R
             query.where(qReview.createdDate.goe(searchRequest.getFromCreatedDate()));
         }
 
-        queryPage(searchRequest, query);
-        sortBy(searchRequest.getOrderBy(), searchRequest.getIsDesc(), query, sortProperties);
         return query;
     }
 
@@ -2,6 +2,8 @@ package com.enterprise.backend.service;
 
 import com.enterprise.backend.model.entity.Authority;
 import com.enterprise.backend.model.entity.Product;
+import com.enterprise.backend.model.entity.QAuthority;
+import com.enterprise.backend.model.entity.QUser;
 import com.enterprise.backend.model.entity.Review;
 import com.enterprise.backend.model.entity.User;
 import com.enterprise.backend.exception.BannedUserException;
@@ -13,6 +15,8 @@ import com.enterprise.backend.model.request.UpdateUserRequest;
 import com.enterprise.backend.model.response.ReviewResponse;
 import com.enterprise.backend.model.response.UserResponse;
 import com.enterprise.backend.service.base.BaseService;
+import com.enterprise.backend.service.cache.ReviewCache;
+import com.enterprise.backend.service.cache.UserCredentialCache;
 import com.enterprise.backend.service.repository.AuthorityRepository;
 import com.enterprise.backend.service.repository.ProductRepository;
 import com.enterprise.backend.service.repository.ReviewRepository;
@@ -20,10 +24,11 @@ import com.enterprise.backend.service.repository.UserRepository;
 import com.enterprise.backend.security.SecurityUtil;
 import com.enterprise.backend.service.transfomer.ReviewTransformer;
 import com.enterprise.backend.service.transfomer.UserTransformer;
-import com.enterprise.backend.util.Utils;
+import com.querydsl.core.Tuple;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -32,18 +37,23 @@ import org.springframework.stereotype.Service;
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
-public class UserService extends BaseService<User, String, UserRepository, UserTransformer, UserRequest, UserResponse> implements UserDetailsService {
+public class UserService extends BaseService<User, String, UserRepository, UserTransformer, UserRequest, UserResponse> implements UserDetailsService, UserDetailsPasswordService {
     private final PasswordEncoder passwordEncoder;
     private final ReviewTransformer reviewTransformer;
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final AuthorityRepository authorityRepository;
+    private final ProductRatingService productRatingService;
+    private final UserCredentialCache userCredentialCache;
+    private final ReviewCache reviewCache;
+    private final ReviewService reviewService;
 
     protected UserService(UserRepository repo,
                           UserTransformer transformer,
@@ -52,13 +62,21 @@ public class UserService extends BaseService<User, String, UserRepository, UserT
                           ReviewTransformer reviewTransformer,
                           ReviewRepository reviewRepository,
                           ProductRepository productRepository,
-                          AuthorityRepository authorityRepository) {
+                          AuthorityRepository authorityRepository,
+                          ProductRatingService productRatingService,
+                          UserCredentialCache userCredentialCache,
+                          ReviewCache reviewCache,
+                          ReviewService reviewService) {
         super(repo, transformer, em);
         this.passwordEncoder = passwordEncoder;
         this.reviewTransformer = reviewTransformer;
         this.reviewRepository = reviewRepository;
         this.productRepository = productRepository;
         this.authorityRepository = authorityRepository;
+        this.productRatingService = productRatingService;
+        this.userCredentialCache = userCredentialCache;
+        this.reviewCache = reviewCache;
+        this.reviewService = reviewService;
     }
 
     @Transactional
@@ -124,29 +142,73 @@ public class UserService extends BaseService<User, String, UserRepository, UserT
         if (request.getEmail() != null && !userToUpdate.getEmail().equals(request.getEmail()) &&
                 repo.findByEmail(request.getEmail()).isPresent())
             throw new EnterpriseBackendException(ErrorCode.CONFLICT_PHONE);
+        boolean renamed = request.getFullName() != null && !request.getFullName().equals(userToUpdate.getFullName());
         request.updateUser(userToUpdate);
+        userCredentialCache.evict(userToUpdate.getId());
+        if (renamed) {
+            reviewCache.evict(reviewRepository.findProductIdsByUserId(userToUpdate.getId()));
+            reviewRepository.updateReviewerName(userToUpdate.getId(), userToUpdate.getFullName());
+        }
         return transformer.toResponse(repo.save(userToUpdate));
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<User> user = repo.findById(username);
-        if (user.isEmpty())
-            user = repo.findByPhone(username);
-        if (user.isEmpty())
-            user = repo.findByEmail(username);
-        if (user.isEmpty()) {
+        UserCredentialCache.Credential credential = userCredentialCache.get(username, this::loadCredential);
+        if (credential == null) {
             throw new EnterpriseBackendException(ErrorCode.USER_NOT_FOUND);
         }
-        if (!user.get().isActive()) {
+        if (!credential.isActive()) {
             throw new BannedUserException("Banded perform action!");
         }
-        List<String> roles = user.get().getAuthorities().stream().map(authority ->
-                authority.getRole().getValue()).collect(Collectors.toList());
 
-        return new org.springframework.security.core.userdetails.User(user.get().getId(),
-                user.get().getPassword() != null ? user.get().getPassword() : "",
-                getAuthorities(roles));
+        return new org.springframework.security.core.userdetails.User(credential.getId(),
+                credential.getPassword() != null ? credential.getPassword() : "",
+                getAuthorities(credential.getRoles()));
+    }
+
+    /**
+     * Stores a re-encoded password after a successful login whose hash used an outdated encoding or cost.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        QUser qUser = QUser.user;
+        queryFactory.update(qUser)
+                .set(qUser.password, newPassword)
+                .where(qUser.id.eq(user.getUsername()))
+                .execute();
+        userCredentialCache.evict(user.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
+    /**
+     * Loads id, password, status and roles in one query, matching the identifier as id, then phone, then email.
+     */
+    private UserCredentialCache.Credential loadCredential(String identifier) {
+        QUser qUser = QUser.user;
+        QAuthority qAuthority = QAuthority.authority;
+        List<Tuple> rows = queryFactory.select(qUser.id, qUser.phone, qUser.password, qUser.isActive, qAuthority.role)
+                .from(qUser)
+                .leftJoin(qUser.authorities, qAuthority)
+                .where(qUser.id.eq(identifier).or(qUser.phone.eq(identifier)).or(qUser.email.eq(identifier)))
+                .fetch();
+        Tuple match = rows.stream()
+                .min(Comparator.comparingInt(row -> identifier.equals(row.get(qUser.id)) ? 0
+                        : identifier.equals(row.get(qUser.phone)) ? 1 : 2))
+                .orElse(null);
+        if (match == null) {
+            return null;
+        }
+        String userId = match.get(qUser.id);
+        List<String> roles = rows.stream()
+                .filter(row -> userId.equals(row.get(qUser.id)) && row.get(qAuthority.role) != null)
+                .map(row -> row.get(qAuthority.role).getValue())
+                .collect(Collectors.toList());
+        return new UserCredentialCache.Credential(userId, match.get(qUser.password),
+                Boolean.TRUE.equals(match.get(qUser.isActive)), roles);
     }
 
     private List<SimpleGrantedAuthority> getAuthorities(List<String> roles) {
@@ -163,11 +225,7 @@ public class UserService extends BaseService<User, String, UserRepository, UserT
                 .orElseThrow(() -> new EnterpriseBackendException(ErrorCode.PRODUCT_NOT_FOUND));
 
         Review review = reviewTransformer.toEntity(request);
-        List<Integer> rates = reviewRepository.findAllByProduct(product)
-                .stream().map(Review::getRate).collect(Collectors.toList());
-        rates.add(request.getRate());
-        product.setRate(Utils.calculateAverage(rates));
-        productRepository.save(product);
+        productRatingService.addRating(product.getId(), request.getRate());
 
         review.setProduct(product);
         String userId = SecurityUtil.getCurrentUsername();
@@ -175,9 +233,15 @@ public class UserService extends BaseService<User, String, UserRepository, UserT
             userId = request.getUserId();
         }
         if (StringUtils.isNotEmpty(userId)) {
-            get(userId).ifPresent(review::setUser);
+            get(userId).ifPresent(user -> {
+                review.setUser(user);
+                review.setReviewerName(user.getFullName());
+            });
         }
-        return reviewTransformer.toResponse(reviewRepository.save(review));
+        ReviewResponse response = reviewTransformer.toResponse(reviewRepository.save(review));
+        reviewCache.evict(product.getId());
+        reviewService.evictCounts();
+        return response;
     }
 
     @Override
@@ -1,20 +1,49 @@
 package com.enterprise.backend.service.base;
 
+import com.enterprise.backend.exception.EnterpriseBackendException;
 import com.enterprise.backend.model.entity.Auditable;
+import com.enterprise.backend.model.error.ErrorCode;
 import com.enterprise.backend.model.request.SearchRequest;
+import com.enterprise.backend.model.response.CursorPage;
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import com.enterprise.backend.util.TransactionUtils;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Wildcard;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public abstract class BaseService<E extends Auditable, ID, R extends BaseCommonRepository<E, ID>, TF extends BaseTransformer<E, RP, RQ>, RQ, RP>
         extends BaseCommonRepoService<E, ID, R> {
 
     protected final TF transformer;
     protected final JPAQueryFactory queryFactory;
+    private ExpiringCache<QueryMetadata, Long> countCache;
 
     protected BaseService(R repo, TF transformer, EntityManager em) {
         super(repo);
@@ -22,33 +51,211 @@ public abstract class BaseService<E extends Auditable, ID, R extends BaseCommonR
         this.queryFactory = new JPAQueryFactory(em);
     }
 
-    protected void sortBy(String orderBy, Boolean isDesc, JPAQuery<E> query, Map<String, ComparableExpressionBase<?>> sortProperties) {
-        if (orderBy != null && sortProperties.containsKey(orderBy)) {
-            if (Boolean.TRUE.equals(isDesc)) {
-                query.orderBy(sortProperties.get(orderBy).desc());
-            } else {
-                query.orderBy(sortProperties.get(orderBy).asc());
-            }
+    @Autowired
+    public void setCountCache(@Value("${app.search.count-cache.max-size:500}") int maxSize,
+                              @Value("${app.search.count-cache.ttl-seconds:30}") long ttlSeconds,
+                              MetricsService metricsService) {
+        if (ttlSeconds > 0) {
+            countCache = new ExpiringCache<>(maxSize, ttlSeconds * 1000);
+            metricsService.register("count-cache." + getClass().getSimpleName(), countCache::stats);
         }
     }
 
-    protected void queryPage(SearchRequest searchRequest, JPAQuery<E> query) {
-        if (searchRequest.getPageNumber() != null) {
-            int page;
-            if (searchRequest.getPageNumber() <= 0) {
-                page = 0;
-            } else {
-                page = searchRequest.getPageNumber() * searchRequest.getPageSize();
+    /**
+     * Forgets the cached totals of this service's searches, now and once the current transaction completes; services
+     * call it on writes that add, remove or re-filter rows. Totals cached by other nodes stay up to
+     * {@code app.search.count-cache.ttl-seconds} old.
+     */
+    public void evictCounts() {
+        if (countCache != null) {
+            TransactionUtils.nowAndAfterCompletion(countCache::clear);
+        }
+    }
+
+    /**
+     * Runs a filtered query as one page with an exact total. Rows are ordered by the requested sort key with
+     * {@code idPath} as tie-breaker; when the request carries a cursor the page starts right after it (keyset
+     * pagination), otherwise at {@code pageNumber * pageSize}. The returned page carries the cursor of its last row
+     * when more rows follow. The total may come from the count cache, see {@link #evictCounts()}.
+     *
+     * @param query  a query holding only joins and filters; ordering and paging are added here
+     * @param mapper converts the fetched rows of one page to responses
+     */
+    protected <T> Page<RP> fetchPage(SearchRequest searchRequest,
+                                     JPAQuery<T> query,
+                                     Map<String, ComparableExpressionBase<?>> sortProperties,
+                                     ComparableExpressionBase<?> idPath,
+                                     Function<List<T>, List<RP>> mapper) {
+        normalizePage(searchRequest);
+        int pageSize = searchRequest.getPageSize();
+        long total = count(query);
+
+        String orderBy = sortProperties.containsKey(searchRequest.getOrderBy()) ? searchRequest.getOrderBy() : null;
+        ComparableExpressionBase<?> sortPath = orderBy != null ? sortProperties.get(orderBy) : idPath;
+        boolean desc = Boolean.TRUE.equals(searchRequest.getIsDesc());
+
+        if (searchRequest.getCursor() != null && !searchRequest.getCursor().isEmpty()) {
+            SeekCursor cursor = SeekCursor.decode(searchRequest.getCursor(), sortPath.getType(), idPath.getType());
+            if (!String.valueOf(orderBy).equals(cursor.getOrderBy()) || cursor.isDesc() != desc) {
+                throw new EnterpriseBackendException(ErrorCode.INVALID_CURSOR);
             }
-            query.offset(page);
+            query.where(seekPredicate(sortPath, idPath, desc, cursor));
+        } else {
+            query.offset((long) searchRequest.getPageNumber() * pageSize);
+        }
+        if (desc) {
+            query.orderBy(sortPath.desc(), idPath.desc());
+        } else {
+            query.orderBy(sortPath.asc(), idPath.asc());
         }
+        query.limit(pageSize + 1L);
+
+        List<T> rows = query.fetch();
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            T last = rows.get(pageSize - 1);
+            nextCursor = new SeekCursor(String.valueOf(orderBy), desc,
+                    valueOf(last, sortPath), valueOf(last, idPath)).encode();
+        }
+        return new CursorPage<>(mapper.apply(rows), PageRequest.of(searchRequest.getPageNumber(), pageSize), total, nextCursor);
+    }
 
-        if (searchRequest.getPageSize() != null) {
-            if (searchRequest.getPageSize() <= 0) {
-                searchRequest.setPageSize(10);
+    /**
+     * Same page as {@link #fetchPage(SearchRequest, JPAQuery, Map, ComparableExpressionBase, Function)} over rows
+     * restricted to {@code ids}, for id lists too long for a single {@code in} list. The sort keys of the matching
+     * rows are read {@code chunkSize} ids at a time and ordered here, as MySQL would order them; only the rows of the
+     * page are loaded.
+     *
+     * @param query builds the filtered query restricted to the given ids
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected <T, K extends Comparable<?>> Page<RP> fetchPage(SearchRequest searchRequest,
+                                        List<K> ids,
+                                        int chunkSize,
+                                        Function<List<K>, JPAQuery<T>> query,
+                                        Map<String, ComparableExpressionBase<?>> sortProperties,
+                                        ComparableExpressionBase<K> idPath,
+                                        Function<List<T>, List<RP>> mapper) {
+        normalizePage(searchRequest);
+        int pageSize = searchRequest.getPageSize();
+
+        String orderBy = sortProperties.containsKey(searchRequest.getOrderBy()) ? searchRequest.getOrderBy() : null;
+        ComparableExpressionBase<?> sortPath = orderBy != null ? sortProperties.get(orderBy) : idPath;
+        boolean desc = Boolean.TRUE.equals(searchRequest.getIsDesc());
+
+        List<Tuple> keys = new ArrayList<>();
+        for (List<K> chunk : chunks(ids, chunkSize)) {
+            keys.addAll(query.apply(chunk).select(idPath, sortPath).fetch());
+        }
+        Comparator<Comparable> natural = Comparator.nullsFirst(Comparator.naturalOrder());
+        Comparator<Tuple> order = Comparator.comparing((Tuple key) -> (Comparable) key.get(sortPath), natural)
+                .thenComparing((Tuple key) -> (Comparable) key.get(idPath), natural);
+        if (desc) {
+            order = order.reversed();
+        }
+        keys.sort(order);
+
+        int from;
+        if (searchRequest.getCursor() != null && !searchRequest.getCursor().isEmpty()) {
+            SeekCursor cursor = SeekCursor.decode(searchRequest.getCursor(), sortPath.getType(), idPath.getType());
+            if (!String.valueOf(orderBy).equals(cursor.getOrderBy()) || cursor.isDesc() != desc) {
+                throw new EnterpriseBackendException(ErrorCode.INVALID_CURSOR);
             }
-            query.limit(searchRequest.getPageSize());
+            Tuple after = Projections.tuple(idPath, sortPath).newInstance(cursor.getId(), cursor.getValue());
+            int position = Collections.binarySearch(keys, after, order);
+            from = position >= 0 ? position + 1 : -position - 1;
+        } else {
+            from = Math.min(searchRequest.getPageNumber() * pageSize, keys.size());
+        }
+        List<Tuple> pageKeys = keys.subList(from, Math.min(from + pageSize, keys.size()));
+
+        String nextCursor = null;
+        if (from + pageSize < keys.size()) {
+            Tuple last = pageKeys.get(pageSize - 1);
+            nextCursor = new SeekCursor(String.valueOf(orderBy), desc, last.get(sortPath), last.get(idPath)).encode();
+        }
+        List<T> rows = new ArrayList<>();
+        if (!pageKeys.isEmpty()) {
+            List<K> pageIds = pageKeys.stream().map(key -> key.get(idPath)).collect(Collectors.toList());
+            Map<Object, Integer> rank = new HashMap<>();
+            pageIds.forEach(id -> rank.put(id, rank.size()));
+            rows.addAll(query.apply(pageIds).fetch());
+            rows.sort(Comparator.comparing(row -> rank.get(valueOf(row, idPath))));
+        }
+        return new CursorPage<>(mapper.apply(rows), PageRequest.of(searchRequest.getPageNumber(), pageSize), keys.size(), nextCursor);
+    }
+
+    /**
+     * Consecutive slices of {@code values} holding at most {@code size} elements each.
+     */
+    protected static <K> List<List<K>> chunks(List<K> values, int size) {
+        List<List<K>> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += size) {
+            chunks.add(values.subList(from, Math.min(from + size, values.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Loads the rows of a page again through {@code loader}, usually a repository method with an entity graph, so the
+     * associations a mapper walks come in one query instead of one per row. The page order is kept.
+     */
+    protected List<E> reload(List<E> rows, Function<E, ID> idOf, Function<Collection<ID>, List<E>> loader) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        Map<ID, E> loaded = new HashMap<>();
+        loader.apply(rows.stream().map(idOf).collect(Collectors.toList()))
+                .forEach(entity -> loaded.put(idOf.apply(entity), entity));
+        return rows.stream()
+                .map(row -> loaded.getOrDefault(idOf.apply(row), row))
+                .collect(Collectors.toList());
+    }
+
+    protected void normalizePage(SearchRequest searchRequest) {
+        if (searchRequest.getPageSize() == null || searchRequest.getPageSize() <= 0) {
+            searchRequest.setPageSize(10);
+        }
+        if (searchRequest.getPageNumber() == null || searchRequest.getPageNumber() < 0) {
+            searchRequest.setPageNumber(0);
+        }
+    }
+
+    private long count(JPAQuery<?> query) {
+        JPAQuery<Long> countQuery = query.clone().select(Wildcard.count);
+        if (countCache == null) {
+            return countQuery.fetchOne();
+        }
+        return countCache.get(countQuery.getMetadata(), key -> countQuery.fetchOne());
+    }
+
+    /**
+     * Rows strictly after the cursor in (sort, id) order; NULL sort keys come first ascending and last descending,
+     * as MySQL orders them.
+     */
+    private Predicate seekPredicate(ComparableExpressionBase<?> sortPath, ComparableExpressionBase<?> idPath,
+                                    boolean desc, SeekCursor cursor) {
+        Ops after = desc ? Ops.LT : Ops.GT;
+        Predicate idAfter = Expressions.booleanOperation(after, idPath, ConstantImpl.create(cursor.getId()));
+        if (sortPath == idPath) {
+            return idAfter;
+        }
+        if (cursor.getValue() == null) {
+            Predicate nullTie = Expressions.booleanOperation(Ops.IS_NULL, sortPath).and(idAfter);
+            return desc ? nullTie : Expressions.booleanOperation(Ops.IS_NOT_NULL, sortPath).or(nullTie);
+        }
+        var value = ConstantImpl.create(cursor.getValue());
+        var predicate = Expressions.booleanOperation(after, sortPath, value)
+                .or(Expressions.booleanOperation(Ops.EQ, sortPath, value).and(idAfter));
+        return desc ? predicate.or(Expressions.booleanOperation(Ops.IS_NULL, sortPath)) : predicate;
+    }
+
+    private Object valueOf(Object row, ComparableExpressionBase<?> path) {
+        if (row instanceof Tuple) {
+            return ((Tuple) row).get(path);
         }
+        return new BeanWrapperImpl(row).getPropertyValue(((Path<?>) path).getMetadata().getName());
     }
 
     @Transactional
@@ -0,0 +1,87 @@
+package com.enterprise.backend.service.base;
+
+import com.enterprise.backend.exception.EnterpriseBackendException;
+import com.enterprise.backend.model.error.ErrorCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset position: the sort key and id of the last row of a page, plus the ordering it was taken under.
+ */
+@Getter
+@RequiredArgsConstructor
+public class SeekCursor {
+    private final String orderBy;
+    private final boolean desc;
+    private final Object value;
+    private final Object id;
+
+    /**
+     * Writes each field as {@code <length>:<text>}, or {@code -} for a null value, so sort values may contain any
+     * character.
+     */
+    public String encode() {
+        StringBuilder raw = new StringBuilder();
+        for (Object field : new Object[]{orderBy, desc, value, id}) {
+            if (field == null) {
+                raw.append('-');
+            } else {
+                String text = field.toString();
+                raw.append(text.length()).append(':').append(text);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SeekCursor decode(String cursor, Class<?> valueType, Class<?> idType) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            List<String> fields = new ArrayList<>(4);
+            int position = 0;
+            while (position < raw.length()) {
+                if (raw.charAt(position) == '-') {
+                    fields.add(null);
+                    position++;
+                    continue;
+                }
+                int colon = raw.indexOf(':', position);
+                int end = colon + 1 + Integer.parseInt(raw.substring(position, colon));
+                fields.add(raw.substring(colon + 1, end));
+                position = end;
+            }
+            if (fields.size() != 4 || fields.get(0) == null || fields.get(1) == null || fields.get(3) == null) {
+                throw new EnterpriseBackendException(ErrorCode.INVALID_CURSOR);
+            }
+            return new SeekCursor(fields.get(0), Boolean.parseBoolean(fields.get(1)),
+                    fields.get(2) == null ? null : parse(fields.get(2), valueType), parse(fields.get(3), idType));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new EnterpriseBackendException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    private static Object parse(String value, Class<?> type) {
+        if (Long.class.equals(type)) {
+            return Long.valueOf(value);
+        }
+        if (Integer.class.equals(type)) {
+            return Integer.valueOf(value);
+        }
+        if (Double.class.equals(type)) {
+            return Double.valueOf(value);
+        }
+        if (LocalDateTime.class.equals(type)) {
+            return LocalDateTime.parse(value);
+        }
+        if (String.class.equals(type)) {
+            return value;
+        }
+        throw new EnterpriseBackendException(ErrorCode.INVALID_CURSOR);
+    }
+}
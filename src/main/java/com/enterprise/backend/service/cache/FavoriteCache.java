@@ -0,0 +1,41 @@
+package com.enterprise.backend.service.cache;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import com.enterprise.backend.util.SortedLongSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Favorite product ids of each user, so "is favorite" is answered without SQL once the user's set is loaded.
+ */
+@Component
+public class FavoriteCache {
+
+    private final ExpiringCache<String, SortedLongSet> cache;
+
+    public FavoriteCache(@Value("${app.cache.favorites.max-size:10000}") int maxSize,
+                         @Value("${app.cache.favorites.ttl-seconds:600}") long ttlSeconds,
+                         MetricsService metricsService) {
+        this.cache = new ExpiringCache<>(maxSize, ttlSeconds * 1000);
+        metricsService.register("favorite-cache", cache::stats);
+    }
+
+    public SortedLongSet get(String userId, Function<String, SortedLongSet> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * Applies a committed change to the user's set when it is cached; a set loaded concurrently is dropped.
+     */
+    public void update(String userId, UnaryOperator<SortedLongSet> change) {
+        cache.computeIfPresent(userId, change);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
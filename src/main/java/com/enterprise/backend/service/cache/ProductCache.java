@@ -0,0 +1,83 @@
+package com.enterprise.backend.service.cache;
+
+import com.enterprise.backend.model.response.ProductResponse;
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import com.enterprise.backend.util.TransactionUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of assembled {@link ProductResponse}s keyed by product id.
+ * Cached values never carry the per-user favorite flag; callers get a copy they may modify.
+ */
+@Component
+public class ProductCache {
+
+    private final ExpiringCache<Long, ProductResponse> cache;
+
+    public ProductCache(@Value("${app.cache.product.max-size:1000}") int maxSize,
+                        @Value("${app.cache.product.ttl-seconds:300}") long ttlSeconds,
+                        MetricsService metricsService) {
+        this.cache = new ExpiringCache<>(maxSize, ttlSeconds * 1000);
+        metricsService.register("product-cache", cache::stats);
+    }
+
+    public ProductResponse get(Long id, Function<Long, ProductResponse> loader) {
+        ProductResponse cached = cache.get(id, key -> {
+            ProductResponse loaded = loader.apply(key);
+            if (loaded != null) {
+                loaded.setFavorite(false);
+            }
+            return loaded;
+        });
+        return copy(cached);
+    }
+
+    public void evict(Long id) {
+        evict(Set.of(id));
+    }
+
+    /**
+     * Evicts the given products, see {@link TransactionUtils#nowAndAfterCompletion}.
+     */
+    public void evict(Collection<Long> ids) {
+        List<Long> keys = ids.stream().distinct().collect(Collectors.toList());
+        if (keys.isEmpty()) {
+            return;
+        }
+        TransactionUtils.nowAndAfterCompletion(() -> cache.invalidateAll(keys));
+    }
+
+    public ExpiringCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private ProductResponse copy(ProductResponse source) {
+        if (source == null) {
+            return null;
+        }
+        ProductResponse target = new ProductResponse();
+        BeanUtils.copyProperties(source, target);
+        // lists are copied too, a caller changing its response must not change the cached one
+        target.setImagesUrl(source.getImagesUrl() != null ? new ArrayList<>(source.getImagesUrl()) : null);
+        target.setRatingDistribution(source.getRatingDistribution() != null
+                ? new ArrayList<>(source.getRatingDistribution()) : null);
+        if (source.getOfCategories() != null) {
+            target.setOfCategories(source.getOfCategories().stream().map(category -> {
+                ProductResponse.OfCategory copy = new ProductResponse.OfCategory();
+                BeanUtils.copyProperties(category, copy);
+                return copy;
+            }).collect(Collectors.toList()));
+        }
+        return target;
+    }
+}
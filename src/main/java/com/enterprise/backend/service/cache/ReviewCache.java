@@ -0,0 +1,51 @@
+package com.enterprise.backend.service.cache;
+
+import com.enterprise.backend.model.response.ReviewResponse;
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import com.enterprise.backend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * First page of reviews of each product, newest first, keyed by product id. Cached pages are shared and must not be
+ * modified.
+ */
+@Component
+public class ReviewCache {
+
+    private final ExpiringCache<Long, Page<ReviewResponse>> cache;
+
+    public ReviewCache(@Value("${app.cache.reviews.max-size:1000}") int maxSize,
+                       @Value("${app.cache.reviews.ttl-seconds:300}") long ttlSeconds,
+                       MetricsService metricsService) {
+        this.cache = new ExpiringCache<>(maxSize, ttlSeconds * 1000);
+        metricsService.register("review-cache", cache::stats);
+    }
+
+    public Page<ReviewResponse> get(Long productId, Function<Long, Page<ReviewResponse>> loader) {
+        return cache.get(productId, loader);
+    }
+
+    public void evict(Long productId) {
+        evict(Set.of(productId));
+    }
+
+    /**
+     * Evicts the given products, see {@link TransactionUtils#nowAndAfterCompletion}.
+     */
+    public void evict(Collection<Long> productIds) {
+        List<Long> keys = productIds.stream().distinct().collect(Collectors.toList());
+        if (keys.isEmpty()) {
+            return;
+        }
+        TransactionUtils.nowAndAfterCompletion(() -> cache.invalidateAll(keys));
+    }
+}
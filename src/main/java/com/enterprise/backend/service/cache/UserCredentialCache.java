@@ -0,0 +1,80 @@
+package com.enterprise.backend.service.cache;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import com.enterprise.backend.util.TransactionUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Short-lived login credentials, cached under the login identifier (id, phone or email) they were loaded with.
+ * Each user remembers the identifiers its credential is cached under, so evicting a user drops all of them.
+ */
+@Component
+public class UserCredentialCache {
+
+    private final ExpiringCache<String, Credential> credentials;
+    private final ExpiringCache<String, Set<String>> identifiers;
+
+    public UserCredentialCache(@Value("${app.cache.credentials.max-size:10000}") int maxSize,
+                               @Value("${app.cache.credentials.ttl-seconds:60}") long ttlSeconds,
+                               MetricsService metricsService) {
+        this.credentials = new ExpiringCache<>(maxSize, ttlSeconds * 1000);
+        // outlives the credentials it lists, which are stored just after it is written
+        this.identifiers = new ExpiringCache<>(maxSize, ttlSeconds * 2000);
+        metricsService.register("credential-cache", credentials::stats);
+    }
+
+    /**
+     * Returns the credential for a login identifier, or {@code null} if no user matches.
+     */
+    public Credential get(String identifier, Function<String, Credential> loader) {
+        return credentials.get(identifier, key -> {
+            Credential loaded = loader.apply(key);
+            if (loaded != null) {
+                // recorded before the load is stored, so an evict from now on finds the entry; an earlier one
+                // makes the cache drop the load
+                remember(loaded.getId(), key);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Evicts the user under every identifier, see {@link TransactionUtils#nowAndAfterCompletion}.
+     */
+    public void evict(String userId) {
+        TransactionUtils.nowAndAfterCompletion(() -> {
+            Set<String> cachedUnder = identifiers.get(userId);
+            credentials.invalidate(userId);
+            if (cachedUnder != null) {
+                credentials.invalidateAll(cachedUnder);
+            }
+        });
+    }
+
+    private synchronized void remember(String userId, String identifier) {
+        Set<String> cachedUnder = identifiers.get(userId);
+        if (cachedUnder == null) {
+            cachedUnder = ConcurrentHashMap.newKeySet();
+        }
+        cachedUnder.add(identifier);
+        identifiers.put(userId, cachedUnder);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Credential {
+        private final String id;
+        private final String password;
+        private final boolean active;
+        private final List<String> roles;
+    }
+}
@@ -0,0 +1,183 @@
+package com.enterprise.backend.service.image;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the {@link ImageVariant} sizes of uploaded images on a bounded pool, with {@link ImageIO} only, to the
+ * {@link ImageStorage} holding the original. A variant missing when requested, for an older upload or a dropped
+ * task, is generated again on demand. Formats without an {@link ImageIO} writer (webp, for one) never get variants,
+ * and an image that failed to resize is not tried again for {@code retry-failed-after-seconds}.
+ */
+@Service
+@Log4j2
+public class ImageDerivativeService implements DisposableBean {
+    private static final Set<String> OPAQUE_FORMATS = Set.of("jpg", "jpeg", "bmp");
+    // read once up front: the suffix comes from the request URL, so lookups must not add entries
+    private static final Set<String> WRITABLE_FORMATS = Arrays.stream(ImageIO.getWriterFileSuffixes())
+            .map(suffix -> suffix.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toUnmodifiableSet());
+
+    private final ImageStorage imageStorage;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ExpiringCache<String, Boolean> failures;
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ImageDerivativeService(ImageStorage imageStorage,
+                                  @Value("${app.image.resize.threads:2}") int threads,
+                                  @Value("${app.image.resize.queue-capacity:100}") int queueCapacity,
+                                  @Value("${app.image.resize.retry-failed-after-seconds:600}") long retryFailedAfterSeconds,
+                                  MetricsService metricsService) {
+        this.imageStorage = imageStorage;
+        this.failures = new ExpiringCache<>(10_000, TimeUnit.SECONDS.toMillis(retryFailedAfterSeconds));
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("ImageResizer-"));
+        metricsService.register("image-resize", this::stats);
+    }
+
+    /**
+     * Whether variants of the image {@code name} can exist: its format has a writer and it did not fail recently.
+     */
+    public boolean canResize(String name) {
+        return WRITABLE_FORMATS.contains(format(name)) && failures.get(name) == null;
+    }
+
+    /**
+     * Queues the variants of the image {@code name}; an image already queued, one that cannot be resized or a full
+     * queue is skipped.
+     */
+    public void generateAsync(String name) {
+        if (!canResize(name) || !pending.add(name)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(name);
+                } finally {
+                    pending.remove(name);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(name);
+            rejected.increment();
+        }
+    }
+
+    void generate(String name) {
+        if (!canResize(name)) {
+            return;
+        }
+        String format = format(name);
+        try {
+            BufferedImage source;
+            try (InputStream in = imageStorage.open(name)) {
+                source = in != null ? ImageIO.read(in) : null;
+            }
+            if (source == null) {
+                log.warn("Cannot decode image {}", name);
+                failed.increment();
+                failures.put(name, Boolean.TRUE);
+                return;
+            }
+            int type = OPAQUE_FORMATS.contains(format) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+            for (ImageVariant variant : ImageVariant.values()) {
+                if (imageStorage.exists(name, variant)) {
+                    continue;
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(resize(source, variant.getMaxSize(), type), format, out);
+                imageStorage.putVariant(name, variant, out.toByteArray());
+            }
+            generated.increment();
+        } catch (IOException | RuntimeException e) {
+            log.error("Cannot resize image {}", name, e);
+            failed.increment();
+            failures.put(name, Boolean.TRUE);
+        }
+    }
+
+    private static String format(String name) {
+        return name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Scales to fit {@code maxSize} by halving steps, which keeps bilinear filtering sharp on large reductions.
+     */
+    static BufferedImage resize(BufferedImage source, int maxSize, int type) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage current = source;
+        int stepWidth = source.getWidth();
+        int stepHeight = source.getHeight();
+        do {
+            stepWidth = Math.max(width, stepWidth / 2);
+            stepHeight = Math.max(height, stepHeight / 2);
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                if (type == BufferedImage.TYPE_INT_RGB) {
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, stepWidth, stepHeight);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (stepWidth != width || stepHeight != height);
+        return current;
+    }
+
+    public Stats stats() {
+        return new Stats(executor.getQueue().size(), executor.getActiveCount(),
+                generated.sum(), failed.sum(), rejected.sum());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int queued;
+        private final int active;
+        private final long generated;
+        private final long failed;
+        private final long rejected;
+    }
+}
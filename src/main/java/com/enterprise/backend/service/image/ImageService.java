@@ -0,0 +1,241 @@
+package com.enterprise.backend.service.image;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves uploaded images straight from disk with validators and long-lived caching headers. Bodies go out through
+ * Tomcat's sendfile when the connector offers it, otherwise through {@link FileChannel#transferTo}. Images in a
+ * remote {@link ImageStorage} are answered with a redirect to a presigned URL instead.
+ * A requested {@link ImageVariant} not generated yet is answered with the original, marked for revalidation; for
+ * images that cannot be resized the original is the final answer and cached as such.
+ */
+@Service
+@Log4j2
+public class ImageService {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    private final ImageStorage imageStorage;
+    private final ImageDerivativeService imageDerivativeService;
+    private final String cacheControl;
+    private final String immutableCacheControl;
+    private final String redirectCacheControl;
+    private final Duration redirectMaxAge;
+    private final ExpiringCache<String, MediaType> contentTypes;
+
+    public ImageService(@Value("${app.image.cache-max-age-seconds:31536000}") long maxAgeSeconds,
+                        @Value("${app.image.redirect-max-age-seconds:3600}") long redirectMaxAgeSeconds,
+                        ImageStorage imageStorage,
+                        ImageDerivativeService imageDerivativeService,
+                        MetricsService metricsService) {
+        this.imageStorage = imageStorage;
+        this.imageDerivativeService = imageDerivativeService;
+        CacheControl maxAge = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        this.cacheControl = maxAge.getHeaderValue();
+        this.immutableCacheControl = maxAge.getHeaderValue() + ", immutable";
+        this.redirectMaxAge = Duration.ofSeconds(redirectMaxAgeSeconds);
+        this.redirectCacheControl = CacheControl.maxAge(redirectMaxAge).cachePrivate().getHeaderValue();
+        this.contentTypes = new ExpiringCache<>(10_000, TimeUnit.DAYS.toMillis(1));
+        metricsService.register("image-content-types", contentTypes::stats);
+    }
+
+    /**
+     * Writes the image {@code fileName}, or its {@code variant} when given: 304 when the client copy is still valid,
+     * 206 for a single byte range, 416 for a range past the end. Requests with several ranges get the whole file.
+     */
+    public void serve(String fileName, ImageVariant variant, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path file = imageStorage.localFile(fileName, null);
+        if (file == null) {
+            redirect(fileName, variant, response);
+            return;
+        }
+        BasicFileAttributes attributes = attributes(file);
+        if (attributes == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String hash = ImageStorage.contentHash(fileName);
+        String cacheControl = hash != null ? immutableCacheControl : this.cacheControl;
+        boolean derived = false;
+        if (variant != null && imageDerivativeService.canResize(fileName)) {
+            Path derivedFile = imageStorage.localFile(fileName, variant);
+            BasicFileAttributes derivedAttributes = attributes(derivedFile);
+            if (derivedAttributes != null) {
+                file = derivedFile;
+                attributes = derivedAttributes;
+                derived = true;
+            } else {
+                imageDerivativeService.generateAsync(fileName);
+                cacheControl = REVALIDATE;
+            }
+        }
+        long length = attributes.size();
+        // HTTP dates have second precision; comparing against a finer mtime would never match If-Modified-Since
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag;
+        if (hash == null) {
+            etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+        } else {
+            etag = "\"" + hash + (derived ? "-" + variant.directoryName() : "") + "\"";
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            HttpRange byteRange = singleRange(range);
+            if (byteRange != null) {
+                start = byteRange.getRangeStart(length);
+                end = byteRange.getRangeEnd(length);
+                if (start > end) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        Path body = file;
+        response.setContentType(contentTypes.get(fileName, key -> contentType(body)).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.inline().filename(fileName).build().toString());
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equals(request.getMethod()) || end < start) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end + 1 - position, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+    }
+
+    /**
+     * Sends the client to a presigned URL of the image, valid twice as long as the redirect may be cached. Only the
+     * requested object is checked: a missing variant falls back to the original unchecked, which the store answers
+     * with its own 404 should the original be missing too.
+     */
+    private void redirect(String fileName, ImageVariant variant, HttpServletResponse response) throws IOException {
+        ImageVariant wanted = variant != null && imageDerivativeService.canResize(fileName) ? variant : null;
+        boolean exists = imageStorage.exists(fileName, wanted);
+        if (!exists && wanted == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        ImageVariant served = exists ? wanted : null;
+        URI url = imageStorage.downloadUrl(fileName, served, redirectMaxAge.multipliedBy(2));
+        if (url == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (served != wanted) {
+            imageDerivativeService.generateAsync(fileName);
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, served == wanted ? redirectCacheControl : REVALIDATE);
+        response.setStatus(HttpStatus.FOUND.value());
+        response.setHeader(HttpHeaders.LOCATION, url.toString());
+    }
+
+    private BasicFileAttributes attributes(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? attributes : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private HttpRange singleRange(String header) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A range is honoured without {@code If-Range}, or when it names the current entity tag or modification date.
+     */
+    private boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() == lastModified;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private MediaType contentType(Path file) {
+        return MediaTypeFactory.getMediaType(file.getFileName().toString()).orElseGet(() -> {
+            try {
+                String probed = Files.probeContentType(file);
+                return probed != null ? MediaType.parseMediaType(probed) : MediaType.APPLICATION_OCTET_STREAM;
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Cannot determine the type of {}: {}", file, e.getMessage());
+                return MediaType.APPLICATION_OCTET_STREAM;
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.enterprise.backend.service.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Where uploaded images and their {@link ImageVariant}s are kept, chosen with {@code app.image.storage}: {@code local}
+ * for a directory of this node, {@code s3} for a bucket shared by all nodes.
+ * <p>
+ * New uploads are named after the SHA-256 of their bytes, so a name never changes content, and stored two levels
+ * deep, {@code ab/cd/abcd…}. Names of older uploads, stored flat, still resolve.
+ */
+public interface ImageStorage {
+    Pattern CONTENT_KEY = Pattern.compile("^(([0-9a-f]{2})([0-9a-f]{2})[0-9a-f]{60})(\\.[a-z0-9]{1,8})?$");
+    Pattern LEGACY_NAME = Pattern.compile("^[^/\\\\]+$");
+
+    /**
+     * Copies {@code content} once, hashing it on the way, and returns its name: the hash plus the extension of
+     * {@code originalFilename}.
+     */
+    String put(InputStream content, String originalFilename) throws IOException;
+
+    /**
+     * Stores the bytes of a variant of the image {@code name}.
+     */
+    void putVariant(String name, ImageVariant variant, byte[] content) throws IOException;
+
+    /**
+     * Whether the image {@code name}, or its {@code variant} when not {@code null}, is stored.
+     */
+    boolean exists(String name, ImageVariant variant) throws IOException;
+
+    /**
+     * Reads the original bytes of {@code name}, or {@code null} when it is not stored.
+     */
+    InputStream open(String name) throws IOException;
+
+    /**
+     * The file of {@code name}, or of its {@code variant}, when this node can send it from its own disk; {@code null}
+     * when the name points outside the store or the storage is remote.
+     */
+    Path localFile(String name, ImageVariant variant);
+
+    /**
+     * A URL clients can download {@code name}, or its {@code variant}, from without going through this application,
+     * valid for {@code validFor}; {@code null} when the storage has no such URL.
+     */
+    URI downloadUrl(String name, ImageVariant variant, Duration validFor) throws IOException;
+
+    /**
+     * The content hash of a content-addressed name, or {@code null} for an older upload.
+     */
+    static String contentHash(String name) {
+        Matcher matcher = CONTENT_KEY.matcher(name);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * The relative location of {@code name}, or of its {@code variant}, within the store: {@code ab/cd/<name>} for a
+     * content-addressed name, below {@code <variant>/} for a variant. {@code null} for a name that is neither a
+     * content key nor a plain file name.
+     */
+    static String relativePath(String name, ImageVariant variant) {
+        String prefix = variant != null ? variant.directoryName() + "/" : "";
+        Matcher matcher = CONTENT_KEY.matcher(name);
+        if (matcher.matches()) {
+            return prefix + matcher.group(2) + "/" + matcher.group(3) + "/" + name;
+        }
+        return LEGACY_NAME.matcher(name).matches() && !name.equals("..") && !name.equals(".") ? prefix + name : null;
+    }
+}
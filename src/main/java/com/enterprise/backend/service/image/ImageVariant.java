@@ -0,0 +1,32 @@
+package com.enterprise.backend.service.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Pre-generated sizes of an uploaded image; each is stored in a sub-directory of the image directory named after
+ * the variant.
+ */
+@Getter
+@AllArgsConstructor
+public enum ImageVariant {
+    THUMB(160), CARD(480), DETAIL(1200);
+
+    /**
+     * Longest side in pixels; images already smaller keep their size.
+     */
+    private final int maxSize;
+
+    public String directoryName() {
+        return name().toLowerCase();
+    }
+
+    public static Optional<ImageVariant> of(String name) {
+        return Arrays.stream(values())
+                .filter(variant -> variant.name().equalsIgnoreCase(name))
+                .findFirst();
+    }
+}
@@ -0,0 +1,161 @@
+package com.enterprise.backend.service.image;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Images in a directory of this node, {@code app.image.directory}; variants sit in a sub-directory per
+ * {@link ImageVariant}. Only suitable for a single node.
+ */
+@Component
+@Log4j2
+@ConditionalOnProperty(name = "app.image.storage", havingValue = "local", matchIfMissing = true)
+public class LocalImageStorage implements ImageStorage {
+    private static final Pattern EXTENSION = Pattern.compile("^[a-z0-9]{1,8}$");
+    // upload threads are request threads, so each keeps one small buffer instead of allocating one per file
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    private final Path directory;
+
+    public LocalImageStorage(@Value("${app.image.directory:./image}") String directory) {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    @PostConstruct
+    public void createDirectory() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory);
+            log.info("Created image directory {}", directory);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public String put(InputStream content, String originalFilename) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            copy(content, temporary, digest);
+            String key = Hex.encodeHexString(digest.digest()) + extension(originalFilename);
+            Path target = localFile(key, null);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                // a concurrent upload of the same bytes may win the rename; both files are identical
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Copies {@code content} to {@code target} through the calling thread's buffer, hashing each chunk on the way.
+     */
+    private static void copy(InputStream content, Path target, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        ReadableByteChannel in = Channels.newChannel(content);
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.clear();
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    @Override
+    public void putVariant(String name, ImageVariant variant, byte[] content) throws IOException {
+        Path target = localFile(name, variant);
+        if (target == null) {
+            throw new NoSuchFileException(name);
+        }
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), "resize-", ".tmp");
+        try {
+            Files.write(temporary, content);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public boolean exists(String name, ImageVariant variant) {
+        Path file = localFile(name, variant);
+        return file != null && Files.isRegularFile(file);
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        Path file = localFile(name, null);
+        try {
+            return file != null ? Files.newInputStream(file) : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Path localFile(String name, ImageVariant variant) {
+        String relativePath = ImageStorage.relativePath(name, variant);
+        if (relativePath == null) {
+            return null;
+        }
+        Path file = directory.resolve(relativePath).normalize();
+        return file.startsWith(directory) ? file : null;
+    }
+
+    @Override
+    public URI downloadUrl(String name, ImageVariant variant, Duration validFor) {
+        return null;
+    }
+
+    static String extension(String filename) {
+        if (filename == null) {
+            return "";
+        }
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return filename.contains(".") && EXTENSION.matcher(extension).matches() ? "." + extension : "";
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.enterprise.backend.service.image;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.ExpiringCache;
+import io.minio.BucketExistsArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Images in an S3 bucket, MinIO or any compatible store, shared by every node. Uploads stream to the bucket in
+ * parts of {@code app.image.s3.part-size-bytes} and clients download through presigned URLs, so image bytes never
+ * go through this application once stored.
+ */
+@Component
+@Log4j2
+@ConditionalOnProperty(name = "app.image.storage", havingValue = "s3")
+public class S3ImageStorage implements ImageStorage {
+    private static final Set<String> MISSING = Set.of("NoSuchKey", "NoSuchObject");
+    private static final String STAGING = "uploads/";
+
+    private final MinioClient client;
+    private final String bucket;
+    private final long partSize;
+    // names never change content, so an object seen once is known to exist without asking the store again
+    private final ExpiringCache<String, Boolean> stored;
+    // a variant not generated yet is asked for on every page view; its absence is remembered briefly
+    private final ExpiringCache<String, Boolean> missing;
+
+    public S3ImageStorage(@Value("${app.image.s3.endpoint}") String endpoint,
+                          @Value("${app.image.s3.access-key}") String accessKey,
+                          @Value("${app.image.s3.secret-key}") String secretKey,
+                          @Value("${app.image.s3.bucket:images}") String bucket,
+                          @Value("${app.image.s3.region:us-east-1}") String region,
+                          @Value("${app.image.s3.part-size-bytes:5242880}") long partSize,
+                          @Value("${app.image.s3.missing-ttl-seconds:30}") long missingTtlSeconds,
+                          MetricsService metricsService) {
+        // a fixed region keeps presigning a local computation instead of a bucket location lookup
+        this.client = MinioClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .region(region)
+                .build();
+        this.bucket = bucket;
+        this.partSize = partSize;
+        this.stored = new ExpiringCache<>(100_000, TimeUnit.DAYS.toMillis(1));
+        this.missing = new ExpiringCache<>(10_000, TimeUnit.SECONDS.toMillis(missingTtlSeconds));
+        metricsService.register("image-storage", stored::stats);
+        metricsService.register("image-storage-missing", missing::stats);
+    }
+
+    @PostConstruct
+    public void createBucket() {
+        try {
+            if (!call(() -> client.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()))) {
+                call(() -> {
+                    client.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+                    return null;
+                });
+                log.info("Created image bucket {}", bucket);
+            }
+        } catch (IOException e) {
+            log.error("Cannot check image bucket {}: {}", bucket, e.getMessage());
+        }
+    }
+
+    @Override
+    public String put(InputStream content, String originalFilename) throws IOException {
+        String staging = STAGING + UUID.randomUUID();
+        MessageDigest digest = LocalImageStorage.sha256();
+        String contentType = MediaTypeFactory.getMediaType(originalFilename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            call(() -> client.putObject(PutObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(staging)
+                    .stream(in, -1, partSize)
+                    .contentType(contentType)
+                    .build()));
+        }
+        try {
+            String key = Hex.encodeHexString(digest.digest()) + LocalImageStorage.extension(originalFilename);
+            if (!exists(key, null)) {
+                String target = ImageStorage.relativePath(key, null);
+                call(() -> client.copyObject(CopyObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(target)
+                        .source(CopySource.builder().bucket(bucket).object(staging).build())
+                        .build()));
+                stored.put(target, Boolean.TRUE);
+                missing.invalidate(target);
+            }
+            return key;
+        } finally {
+            call(() -> {
+                client.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(staging).build());
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void putVariant(String name, ImageVariant variant, byte[] content) throws IOException {
+        String object = ImageStorage.relativePath(name, variant);
+        if (object == null) {
+            throw new IOException("Invalid image name " + name);
+        }
+        String contentType = MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        call(() -> client.putObject(PutObjectArgs.builder()
+                .bucket(bucket)
+                .object(object)
+                .stream(new ByteArrayInputStream(content), content.length, -1)
+                .contentType(contentType)
+                .build()));
+        stored.put(object, Boolean.TRUE);
+        missing.invalidate(object);
+    }
+
+    /**
+     * Asks the store at most once per {@code missing-ttl-seconds} about an absent object. Writes through this node
+     * clear the remembered absence; the positive cache is checked first, so a write racing the check still wins.
+     */
+    @Override
+    public boolean exists(String name, ImageVariant variant) throws IOException {
+        String object = ImageStorage.relativePath(name, variant);
+        if (object == null) {
+            return false;
+        }
+        if (stored.get(object) != null) {
+            return true;
+        }
+        if (missing.get(object) != null) {
+            return false;
+        }
+        try {
+            call(() -> client.statObject(StatObjectArgs.builder().bucket(bucket).object(object).build()));
+        } catch (ObjectMissingException e) {
+            missing.put(object, Boolean.TRUE);
+            return false;
+        }
+        stored.put(object, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        String object = ImageStorage.relativePath(name, null);
+        if (object == null) {
+            return null;
+        }
+        try {
+            return call(() -> client.getObject(GetObjectArgs.builder().bucket(bucket).object(object).build()));
+        } catch (ObjectMissingException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Path localFile(String name, ImageVariant variant) {
+        return null;
+    }
+
+    @Override
+    public URI downloadUrl(String name, ImageVariant variant, Duration validFor) throws IOException {
+        String object = ImageStorage.relativePath(name, variant);
+        if (object == null) {
+            return null;
+        }
+        return URI.create(call(() -> client.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                .method(Method.GET)
+                .bucket(bucket)
+                .object(object)
+                .expiry((int) validFor.getSeconds())
+                .build())));
+    }
+
+    private <T> T call(S3Call<T> call) throws IOException {
+        try {
+            return call.call();
+        } catch (ErrorResponseException e) {
+            if (MISSING.contains(e.errorResponse().code())) {
+                throw new ObjectMissingException(e);
+            }
+            throw new IOException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private interface S3Call<T> {
+        T call() throws Exception;
+    }
+
+    private static class ObjectMissingException extends IOException {
+        ObjectMissingException(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
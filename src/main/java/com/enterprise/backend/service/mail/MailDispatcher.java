@@ -0,0 +1,237 @@
+package com.enterprise.backend.service.mail;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.util.Constants;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends mail from a bounded queue on a fixed set of workers.
+ * Each worker drains up to {@code batch-size} messages and hands them to the sender in one call,
+ * so they share a single SMTP connection. Failed messages are retried with exponential backoff.
+ */
+@Log4j2
+@Service
+public class MailDispatcher {
+
+    private final JavaMailSender javaMailSender;
+    private final String from;
+    private final int workers;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final BlockingQueue<MailMessage> queue;
+    private final ExecutorService workerPool;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final LongAccumulator maxSendNanos = new LongAccumulator(Math::max, 0);
+
+    public MailDispatcher(JavaMailSender javaMailSender,
+                          @Value("${app.admin.mail}") String from,
+                          @Value("${app.mail.workers:2}") int workers,
+                          @Value("${app.mail.queue-capacity:1000}") int queueCapacity,
+                          @Value("${app.mail.batch-size:20}") int batchSize,
+                          @Value("${app.mail.offer-timeout-ms:500}") long offerTimeoutMillis,
+                          @Value("${app.mail.max-attempts:3}") int maxAttempts,
+                          @Value("${app.mail.retry-backoff-ms:2000}") long retryBackoffMillis,
+                          MetricsService metricsService) {
+        this.javaMailSender = javaMailSender;
+        this.from = from;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerPool = Executors.newFixedThreadPool(workers, threadFactory("MailWorker-"));
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("MailRetry-"));
+        metricsService.register("mail", this::stats);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        workerPool.shutdownNow();
+        workerPool.awaitTermination(5, TimeUnit.SECONDS);
+        if (!queue.isEmpty()) {
+            log.warn("Mail dispatcher stopped with {} unsent mail(s)", queue.size());
+        }
+    }
+
+    /**
+     * Queues a mail, waiting up to {@code offer-timeout-ms} for room when the queue is full, and reports its outcome:
+     * the future completes with true once the mail server accepted it, and with false when it was dropped or every
+     * attempt failed. Mails still queued when the dispatcher stops never complete.
+     */
+    public CompletableFuture<Boolean> dispatch(String to, String subject, String content, boolean html) {
+        if (StringUtils.isEmpty(to)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        MailMessage message = new MailMessage(to, subject, content, html);
+        enqueue(message, offerTimeoutMillis);
+        return message.getDelivery();
+    }
+
+    public Stats stats() {
+        long sentBatches = batches.sum();
+        return new Stats(queue.size(), queue.size() + queue.remainingCapacity(),
+                sent.sum(), failed.sum(), retried.sum(), rejected.sum(), sentBatches,
+                sentBatches == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(sendNanos.sum() / sentBatches),
+                TimeUnit.NANOSECONDS.toMillis(maxSendNanos.get()));
+    }
+
+    private void enqueue(MailMessage message, long timeoutMillis) {
+        try {
+            if (queue.offer(message, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        log.warn("Mail queue is full, dropping mail to {}", message.getTo());
+        message.getDelivery().complete(false);
+    }
+
+    private void work() {
+        List<MailMessage> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Unexpected error in mail worker: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<MailMessage> batch) {
+        Map<MimeMessage, MailMessage> prepared = new IdentityHashMap<>();
+        for (MailMessage message : batch) {
+            message.nextAttempt();
+            try {
+                prepared.put(toMimeMessage(message), message);
+            } catch (MessagingException | RuntimeException e) {
+                failed.increment();
+                log.error("Cannot build mail to {}: {}", message.getTo(), e.getMessage(), e);
+                message.getDelivery().complete(false);
+            }
+        }
+        if (prepared.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            javaMailSender.send(prepared.keySet().toArray(new MimeMessage[0]));
+            sent.add(prepared.size());
+            prepared.values().forEach(message -> message.getDelivery().complete(true));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            prepared.forEach((mimeMessage, message) -> {
+                if (failedMessages.isEmpty() || failedMessages.containsKey(mimeMessage)) {
+                    retry(message, failedMessages.getOrDefault(mimeMessage, e));
+                } else {
+                    sent.increment();
+                    message.getDelivery().complete(true);
+                }
+            });
+        } catch (MailException e) {
+            prepared.values().forEach(message -> retry(message, e));
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            batches.increment();
+            sendNanos.add(elapsed);
+            maxSendNanos.accumulate(elapsed);
+        }
+    }
+
+    private void retry(MailMessage message, Exception cause) {
+        if (message.getAttempts() >= maxAttempts) {
+            failed.increment();
+            log.error("Giving up mail to {} after {} attempt(s): {}", message.getTo(), message.getAttempts(), cause.getMessage());
+            message.getDelivery().complete(false);
+            return;
+        }
+        retried.increment();
+        long delay = retryBackoffMillis << (message.getAttempts() - 1);
+        log.warn("Mail to {} failed, retrying in {} ms: {}", message.getTo(), delay, cause.getMessage());
+        retryScheduler.schedule(() -> enqueue(message, 0), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private MimeMessage toMimeMessage(MailMessage message) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, Constants.UTF_8);
+        helper.setText(message.getContent(), message.isHtml());
+        helper.setTo(message.getTo());
+        helper.setSubject(message.getSubject());
+        helper.setFrom(from);
+        return mimeMessage;
+    }
+
+    private static CustomizableThreadFactory threadFactory(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int queueDepth;
+        private final int queueCapacity;
+        private final long sent;
+        private final long failed;
+        private final long retried;
+        private final long rejected;
+        private final long batches;
+        private final long averageSendMillis;
+        private final long maxSendMillis;
+    }
+}
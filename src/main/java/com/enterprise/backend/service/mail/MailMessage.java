@@ -0,0 +1,24 @@
+package com.enterprise.backend.service.mail;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.CompletableFuture;
+
+@Getter
+@RequiredArgsConstructor
+public class MailMessage {
+    private final String to;
+    private final String subject;
+    private final String content;
+    private final boolean html;
+    private int attempts;
+    /**
+     * Completes with true once the mail server accepted the mail, false once it was dropped or given up on.
+     */
+    private final CompletableFuture<Boolean> delivery = new CompletableFuture<>();
+
+    int nextAttempt() {
+        return ++attempts;
+    }
+}
@@ -0,0 +1,154 @@
+package com.enterprise.backend.service.mail;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders mail bodies and subjects from templates under {@code app.mail.templates.location}.
+ * Templates are compiled once into literal and {@code {{ name }}} segments; values are HTML-escaped in
+ * {@code .html} templates. Subjects live in {@code subjects.properties}. With {@code app.mail.templates.reload}
+ * a template is recompiled when its file changes, which is meant for a {@code file:} location in development.
+ */
+@Log4j2
+@Component
+public class MailTemplateEngine {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\{\\s*([\\w.-]+)\\s*}}");
+    private static final String SUBJECTS = "subjects.properties";
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final boolean reload;
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    public MailTemplateEngine(ResourceLoader resourceLoader,
+                              @Value("${app.mail.templates.location:classpath:/email/}") String location,
+                              @Value("${app.mail.templates.reload:false}") boolean reload) {
+        this.resourceLoader = resourceLoader;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.reload = reload;
+    }
+
+    public String render(String name, Map<String, String> model) {
+        return template(name).render(model);
+    }
+
+    public String subject(String key, Map<String, String> model) {
+        return template(SUBJECTS + "#" + key).render(model);
+    }
+
+    private Template template(String name) {
+        Template template = templates.get(name);
+        if (template == null || reload && template.lastModified != lastModified(template.resource)) {
+            template = templates.compute(name, (key, current) ->
+                    current == null || reload && current.lastModified != lastModified(current.resource)
+                            ? load(key)
+                            : current);
+        }
+        return template;
+    }
+
+    private Template load(String name) {
+        int hash = name.indexOf('#');
+        Resource resource = resourceLoader.getResource(location + (hash < 0 ? name : name.substring(0, hash)));
+        long lastModified = reload ? lastModified(resource) : 0;
+        try (InputStream in = resource.getInputStream()) {
+            String source;
+            if (hash < 0) {
+                source = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+            } else {
+                Properties properties = new Properties();
+                try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+                source = properties.getProperty(name.substring(hash + 1));
+                if (source == null) {
+                    throw new IllegalArgumentException("Unknown mail subject " + name.substring(hash + 1));
+                }
+            }
+            log.debug("Compiled mail template {}", name);
+            return Template.compile(source, name.endsWith(".html"), resource, lastModified);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load mail template " + name, e);
+        }
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (FileNotFoundException e) {
+            return -1;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static class Template {
+        private final String[] literals;
+        private final String[] variables;
+        private final boolean escape;
+        private final int length;
+        private final Resource resource;
+        private final long lastModified;
+
+        private Template(String[] literals, String[] variables, boolean escape, Resource resource, long lastModified) {
+            this.literals = literals;
+            this.variables = variables;
+            this.escape = escape;
+            this.resource = resource;
+            this.lastModified = lastModified;
+            int total = 0;
+            for (String literal : literals) {
+                total += literal.length();
+            }
+            this.length = total;
+        }
+
+        static Template compile(String source, boolean escape, Resource resource, long lastModified) {
+            List<String> literals = new ArrayList<>();
+            List<String> variables = new ArrayList<>();
+            Matcher matcher = VARIABLE.matcher(source);
+            int start = 0;
+            while (matcher.find()) {
+                literals.add(source.substring(start, matcher.start()));
+                variables.add(matcher.group(1));
+                start = matcher.end();
+            }
+            literals.add(source.substring(start));
+            return new Template(literals.toArray(new String[0]), variables.toArray(new String[0]),
+                    escape, resource, lastModified);
+        }
+
+        String render(Map<String, String> model) {
+            StringBuilder builder = new StringBuilder(length + 64 * variables.length);
+            for (int i = 0; i < variables.length; i++) {
+                builder.append(literals[i]);
+                String value = model.get(variables[i]);
+                if (value != null) {
+                    builder.append(escape ? HtmlUtils.htmlEscape(value, StandardCharsets.UTF_8.name()) : value);
+                }
+            }
+            return builder.append(literals[variables.length]).toString();
+        }
+    }
+}
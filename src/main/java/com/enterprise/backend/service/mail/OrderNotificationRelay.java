@@ -0,0 +1,159 @@
+package com.enterprise.backend.service.mail;
+
+import com.enterprise.backend.model.entity.Authority;
+import com.enterprise.backend.model.entity.OrderNotification;
+import com.enterprise.backend.model.entity.ProductOrder;
+import com.enterprise.backend.model.entity.User;
+import com.enterprise.backend.service.EmailService;
+import com.enterprise.backend.service.repository.OrderNotificationRepository;
+import com.enterprise.backend.service.repository.ProductOrderRepository;
+import com.enterprise.backend.service.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drains the order notification outbox into {@link EmailService}.
+ * A row is claimed before it is sent and stays claimed until {@link MailDispatcher} reports the outcome: it is
+ * deleted once the mail server accepted every mail, released for another attempt otherwise. A released row keeps
+ * the addresses already delivered to, so a retry only sends to the recipients that did not get the mail. A claim older than
+ * {@code claim-timeout-seconds} is considered abandoned (the node died with the mail queued) and picked up again,
+ * so the timeout has to outlast the mail queue and its retries or a slow mail is sent twice.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class OrderNotificationRelay {
+
+    private final OrderNotificationRepository orderNotificationRepository;
+    private final ProductOrderRepository productOrderRepository;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize;
+    @Value("${app.outbox.claim-timeout-seconds:300}")
+    private long claimTimeoutSeconds;
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusSeconds(claimTimeoutSeconds);
+        for (Long id : orderNotificationRepository.findPendingIds(staleBefore, PageRequest.of(0, batchSize))) {
+            if (orderNotificationRepository.claim(id, now, staleBefore) == 0) {
+                continue;
+            }
+            Optional<OrderNotification> notification = orderNotificationRepository.findById(id);
+            if (notification.isEmpty()) {
+                continue;
+            }
+            int attempts = notification.get().getAttempts() + 1;
+            Set<String> delivered = deliveredTo(notification.get());
+            Map<String, CompletableFuture<Boolean>> deliveries;
+            try {
+                deliveries = dispatch(notification.get(), delivered);
+            } catch (Exception e) {
+                log.error("Cannot relay order notification {}: {}", id, e.getMessage(), e);
+                settle(id, attempts, delivered, false);
+                continue;
+            }
+            CompletableFuture.allOf(deliveries.values().toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((done, error) -> {
+                        deliveries.forEach((address, delivery) -> {
+                            if (!delivery.isCompletedExceptionally() && delivery.join()) {
+                                delivered.add(address);
+                            }
+                        });
+                        settle(id, attempts, delivered, delivered.containsAll(deliveries.keySet()));
+                    });
+        }
+    }
+
+    /**
+     * Runs on the mail worker that finished the last mail of the row. Should this fail the row stays claimed and is
+     * retried once the claim times out.
+     */
+    private void settle(Long id, int attempts, Set<String> delivered, boolean complete) {
+        try {
+            if (complete || attempts >= maxAttempts) {
+                if (!complete) {
+                    log.error("Dropping order notification {} after {} attempt(s)", id, attempts);
+                }
+                orderNotificationRepository.deleteById(id);
+            } else {
+                orderNotificationRepository.release(id, delivered.isEmpty() ? null : String.join("\n", delivered));
+            }
+        } catch (Exception e) {
+            log.error("Cannot settle order notification {}: {}", id, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends the mails of {@code notification} to every recipient not in {@code delivered}.
+     *
+     * @return the outcome per recipient address
+     */
+    private Map<String, CompletableFuture<Boolean>> dispatch(OrderNotification notification, Set<String> delivered) {
+        Map<String, CompletableFuture<Boolean>> deliveries = new HashMap<>();
+        Optional<ProductOrder> productOrder = productOrderRepository.findById(notification.getProductOrderId());
+        if (productOrder.isEmpty()) {
+            return deliveries;
+        }
+        ProductOrder order = productOrder.get();
+        switch (notification.getType()) {
+            case NEW_ORDER:
+                for (User receiver : receivers(order.getEmail())) {
+                    String address = receiver.getEmail();
+                    if (StringUtils.isNotEmpty(address) && !delivered.contains(address) && !deliveries.containsKey(address)) {
+                        deliveries.put(address, emailService.sendNewOrder(order.getHtmlContent(), receiver));
+                    }
+                }
+                break;
+            case STATUS_CHANGED:
+                if (StringUtils.isNotEmpty(order.getEmail()) && !delivered.contains(order.getEmail())) {
+                    deliveries.put(order.getEmail(),
+                            emailService.sendUpdateOrder(order.getHtmlContent(), notification.getOrderStatus(), order.getEmail()));
+                }
+                break;
+            default:
+                break;
+        }
+        return deliveries;
+    }
+
+    private static Set<String> deliveredTo(OrderNotification notification) {
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        if (StringUtils.isNotEmpty(notification.getDeliveredTo())) {
+            delivered.addAll(Arrays.asList(notification.getDeliveredTo().split("\n")));
+        }
+        return delivered;
+    }
+
+    private Set<User> receivers(String email) {
+        Set<User> receivers = new HashSet<>();
+        userRepository.findAllAdmin().ifPresent(receivers::addAll);
+        userRepository.findWithAuthoritiesByEmail(email).ifPresentOrElse(receivers::add, () -> {
+            User user = new User();
+            user.setEmail(email);
+            user.setAuthorities(Set.of(Authority.builder().role(Authority.Role.ROLE_USER).build()));
+            receivers.add(user);
+        });
+        return receivers;
+    }
+}
@@ -0,0 +1,36 @@
+package com.enterprise.backend.service.repository;
+
+import com.enterprise.backend.model.entity.FavoriteProduct;
+import com.enterprise.backend.service.base.BaseCommonRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface FavoriteProductRepository extends BaseCommonRepository<FavoriteProduct, FavoriteProduct.Key> {
+    @Query("SELECT e.id.productId FROM FavoriteProduct e WHERE e.id.userId = :userId")
+    List<Long> findProductIdsByUserId(String userId);
+
+    /**
+     * Inserts the pair unless it is already there, so concurrent adds of the same favorite both succeed.
+     *
+     * @return 0 when the favorite already existed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO favorite_product (user_id, product_id, created_date) VALUES (:userId, :productId, :createdDate) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertFavorite(String userId, Long productId, LocalDateTime createdDate);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FavoriteProduct e WHERE e.id.userId = :userId AND e.id.productId = :productId")
+    int deleteFavorite(String userId, Long productId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FavoriteProduct e WHERE e.id.productId = :productId")
+    int deleteByProductId(Long productId);
+}
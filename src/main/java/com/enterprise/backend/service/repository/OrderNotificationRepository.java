@@ -0,0 +1,28 @@
+package com.enterprise.backend.service.repository;
+
+import com.enterprise.backend.model.entity.OrderNotification;
+import com.enterprise.backend.service.base.BaseCommonRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderNotificationRepository extends BaseCommonRepository<OrderNotification, Long> {
+    @Query("SELECT e.id FROM OrderNotification e WHERE e.claimedDate IS NULL OR e.claimedDate < :staleBefore ORDER BY e.id")
+    List<Long> findPendingIds(LocalDateTime staleBefore, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderNotification e SET e.claimedDate = :now " +
+            "WHERE e.id = :id AND (e.claimedDate IS NULL OR e.claimedDate < :staleBefore)")
+    int claim(Long id, LocalDateTime now, LocalDateTime staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderNotification e SET e.claimedDate = NULL, e.attempts = e.attempts + 1, " +
+            "e.deliveredTo = :deliveredTo WHERE e.id = :id")
+    void release(Long id, String deliveredTo);
+}
@@ -0,0 +1,12 @@
+package com.enterprise.backend.service.repository;
+
+import com.enterprise.backend.model.entity.Orders;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    /**
+     * Inserts order lines with one JDBC batch. Every line must already reference a persisted product and product order.
+     */
+    void insertAll(List<Orders> orders);
+}
@@ -0,0 +1,36 @@
+package com.enterprise.backend.service.repository;
+
+import com.enterprise.backend.model.entity.Orders;
+import com.enterprise.backend.security.SecurityUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+    private static final String INSERT_SQL = "INSERT INTO orders (product_id, product_order_id, quantity, " +
+            "created_date, updated_date, created_by, updated_by) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<Orders> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = SecurityUtil.getCurrentUsername();
+        jdbcTemplate.batchUpdate(INSERT_SQL, orders, orders.size(), (ps, order) -> {
+            ps.setLong(1, order.getProduct().getId());
+            ps.setLong(2, order.getProductOrder().getId());
+            ps.setInt(3, order.getQuantity());
+            ps.setTimestamp(4, now);
+            ps.setTimestamp(5, now);
+            ps.setString(6, auditor);
+            ps.setString(7, auditor);
+        });
+    }
+}
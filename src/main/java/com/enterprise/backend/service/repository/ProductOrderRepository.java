@@ -7,17 +7,23 @@ import com.enterprise.backend.model.enums.OrderTypeStatus;
 import com.enterprise.backend.service.base.BaseCommonRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductOrderRepository extends BaseCommonRepository<ProductOrder, Long> {
     @Modifying
-    @Query("UPDATE ProductOrder e SET e.status = :status WHERE e.id = :id")
-    void updateProductOrderByStatus(Long id, OrderStatus status);
+    @Query("UPDATE ProductOrder e SET e.status = :status WHERE e.id = :id AND e.status IN :current")
+    int updateProductOrderByStatus(Long id, OrderStatus status, Collection<OrderStatus> current);
 
     Page<ProductOrder> findAllByUser(User user, Pageable pageable);
 
     Optional<ProductOrder> findByUserAndIdAndType(User user, Long id, OrderTypeStatus type);
+
+    @EntityGraph(ProductOrder.WITH_PRODUCTS)
+    List<ProductOrder> findDistinctWithProductsByIdIn(Collection<Long> ids);
 }
@@ -1,12 +1,19 @@
 package com.enterprise.backend.service.repository;
 
 import com.enterprise.backend.model.entity.Product;
-import com.enterprise.backend.model.entity.User;
 import com.enterprise.backend.service.base.BaseCommonRepository;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.EntityGraph;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends BaseCommonRepository<Product, Long> {
     Integer countByTitle(String title);
+
+    @EntityGraph(Product.WITH_CATEGORIES)
+    Optional<Product> findWithCategoriesById(Long id);
+
+    @EntityGraph(Product.WITH_CATEGORIES)
+    List<Product> findWithCategoriesByIdIn(Collection<Long> ids);
 }
@@ -3,9 +3,26 @@ package com.enterprise.backend.service.repository;
 import com.enterprise.backend.model.entity.Product;
 import com.enterprise.backend.model.entity.Review;
 import com.enterprise.backend.service.base.BaseCommonRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 public interface ReviewRepository extends BaseCommonRepository<Review, Long> {
     List<Review> findAllByProduct(Product product);
+
+    @Query("SELECT DISTINCT e.product.id FROM Review e WHERE e.user.id = :userId")
+    List<Long> findProductIdsByUserId(String userId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Review e SET e.reviewerName = :reviewerName WHERE e.user.id = :userId")
+    int updateReviewerName(String userId, String reviewerName);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Review e SET e.reviewerName = (SELECT u.fullName FROM User u WHERE u.id = e.user.id) " +
+            "WHERE e.reviewerName IS NULL AND e.user IS NOT NULL")
+    int fillMissingReviewerNames();
 }
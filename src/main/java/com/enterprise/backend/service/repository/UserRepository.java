@@ -4,6 +4,7 @@ import com.enterprise.backend.model.entity.User;
 import com.enterprise.backend.service.base.BaseCommonRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -23,8 +24,10 @@ public interface UserRepository extends BaseCommonRepository<User, String> {
     @Query(value = "SELECT * FROM enterprise_project.user WHERE (:keyword IS NULL OR MATCH (phone, email) AGAINST (:keyword))", nativeQuery = true)
     List<User> searchByEmailOrPhone(String keyword);
 
-    @Query(value = "SELECT u.* FROM enterprise_project.user u INNER JOIN enterprise_project.authority a ON a.user_id = u.id " +
-            "WHERE a.role = 'ROLE_ADMIN' OR a.role = 'ROLE_SUPER_ADMIN' GROUP BY a.user_id", nativeQuery = true)
+    @EntityGraph(User.WITH_AUTHORITIES)
+    @Query("SELECT DISTINCT u FROM User u WHERE u.id IN (SELECT a.user.id FROM Authority a " +
+            "WHERE a.role = com.enterprise.backend.model.entity.Authority$Role.ROLE_ADMIN " +
+            "OR a.role = com.enterprise.backend.model.entity.Authority$Role.ROLE_SUPER_ADMIN)")
     Optional<List<User>> findAllAdmin();
 
     @Query(value = "SELECT u.* FROM enterprise_project.user u " +
@@ -33,5 +36,8 @@ public interface UserRepository extends BaseCommonRepository<User, String> {
 
     Optional<User> findByEmail(String email);
 
+    @EntityGraph(User.WITH_AUTHORITIES)
+    Optional<User> findWithAuthoritiesByEmail(String email);
+
     Optional<User> findByPhone(String phone);
 }
@@ -0,0 +1,175 @@
+package com.enterprise.backend.service.search;
+
+import com.enterprise.backend.model.entity.QProduct;
+import com.enterprise.backend.util.Utils;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over product titles and descriptions. Tokens are folded to lower-case ASCII with
+ * {@link Utils#toEn}, so "banh mi" matches "Bánh mì". Every query token must match a product token exactly or
+ * as a prefix; title hits and exact hits rank higher.
+ * <p>
+ * The index lives in this node's memory: it is built on {@link ApplicationReadyEvent} and afterwards only follows
+ * product writes made through this node. With several nodes, products written elsewhere stay unsearchable (or
+ * searchable under their old text) here until the next restart.
+ */
+@Component
+@Log4j2
+public class ProductSearchIndex {
+    private static final QProduct qProduct = QProduct.product;
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_BOOST = 2;
+    private static final int BATCH_SIZE = 1000;
+
+    private final JPAQueryFactory queryFactory;
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    public ProductSearchIndex(EntityManager em) {
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            postings.clear();
+            documents.clear();
+            long lastId = 0;
+            List<Tuple> batch;
+            do {
+                batch = queryFactory.select(qProduct.id, qProduct.title, qProduct.description)
+                        .from(qProduct)
+                        .where(qProduct.id.gt(lastId))
+                        .orderBy(qProduct.id.asc())
+                        .limit(BATCH_SIZE)
+                        .fetch();
+                for (Tuple row : batch) {
+                    lastId = row.get(qProduct.id);
+                    put(lastId, row.get(qProduct.title), row.get(qProduct.description));
+                }
+            } while (batch.size() == BATCH_SIZE);
+            ready = true;
+            log.info("Product search index built: {} products, {} terms", documents.size(), postings.size());
+        } catch (Exception e) {
+            log.error("Failed to build product search index: {}", e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(Long id, String title, String description) {
+        lock.writeLock().lock();
+        try {
+            remove0(id);
+            put(id, title, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove0(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the products matching every token of {@code text}, best match first.
+     */
+    public List<Long> search(String text) {
+        List<String> tokens = tokenize(text).stream().distinct().collect(Collectors.toList());
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String token : tokens) {
+                Map<Long, Integer> tokenScores = score(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return SEPARATOR.splitAsStream(Utils.toEn(text).toLowerCase(Locale.ROOT))
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Integer> score(String token) {
+        Map<Long, Integer> scores = new HashMap<>();
+        postings.subMap(token, true, token + Character.MAX_VALUE, false).forEach((term, docs) -> {
+            int boost = term.equals(token) ? EXACT_BOOST : 1;
+            docs.forEach((id, weight) -> scores.merge(id, weight * boost, Math::max));
+        });
+        return scores;
+    }
+
+    private void put(Long id, String title, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(title).forEach(token -> weights.merge(token, TITLE_WEIGHT, Integer::sum));
+        tokenize(description).forEach(token -> weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum));
+        weights.forEach((token, weight) -> postings.computeIfAbsent(token, k -> new HashMap<>()).put(id, weight));
+        documents.put(id, weights.keySet());
+    }
+
+    private void remove0(Long id) {
+        Set<String> tokens = documents.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        tokens.forEach(token -> {
+            Map<Long, Integer> docs = postings.get(token);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        });
+    }
+}
@@ -14,13 +14,17 @@ import org.mapstruct.MappingTarget;
 public interface ReviewTransformer extends BaseTransformer<Review, ReviewResponse, ReviewRequest> {
     @AfterMapping
     default void afterMappingToResponse(Review entity, @MappingTarget ReviewResponse response) {
-        if (ObjectUtils.isNotEmpty(entity)
-                && StringUtils.isNotEmpty(entity.getUser().getFullName())) {
+        if (ObjectUtils.isEmpty(entity) || entity.getUser() == null) {
+            return;
+        }
+
+        if (StringUtils.isNotEmpty(entity.getReviewerName())) {
+            response.setFullName(entity.getReviewerName());
+        } else if (StringUtils.isNotEmpty(entity.getUser().getFullName())) {
             response.setFullName(entity.getUser().getFullName());
         }
 
-        if (ObjectUtils.isNotEmpty(entity)
-                && StringUtils.isNotEmpty(entity.getUser().getId())) {
+        if (StringUtils.isNotEmpty(entity.getUser().getId())) {
             response.setUserId(entity.getUser().getId());
         }
     }
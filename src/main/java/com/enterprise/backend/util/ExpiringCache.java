@@ -0,0 +1,235 @@
+package com.enterprise.backend.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A small in-process LRU cache bounded by size and by time-to-live.
+ * Loads happen outside the lock; a value loaded while an invalidation was running is not stored.
+ * <p>
+ * Entries can be spread over several independently locked segments, each an LRU of its share of the size, for caches
+ * read on every request; with one segment the whole cache is a single exact LRU behind one lock.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final List<LinkedHashMap<K, Entry<V>>> segments;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ExpiringCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, 1);
+    }
+
+    public ExpiringCache(int maxSize, long ttlMillis, int segmentCount) {
+        this(maxSize, ttlMillis, segmentCount, System::currentTimeMillis);
+    }
+
+    public ExpiringCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this(maxSize, ttlMillis, 1, clock);
+    }
+
+    public ExpiringCache(int maxSize, long ttlMillis, int segmentCount, LongSupplier clock) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        int count = Math.max(1, Math.min(segmentCount, this.maxSize));
+        List<LinkedHashMap<K, Entry<V>>> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int segmentSize = this.maxSize / count + (i < this.maxSize % count ? 1 : 0);
+            segments.add(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (size() > segmentSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            });
+        }
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the cached value, or {@code null} if it is absent or expired.
+     */
+    public V get(K key) {
+        LinkedHashMap<K, Entry<V>> entries = segment(key);
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expireAt <= clock.getAsLong()) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Returns the cached value or loads and caches it. {@code null} results are not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        long loadGeneration = generation.get();
+        value = loader.apply(key);
+        if (value != null) {
+            LinkedHashMap<K, Entry<V>> entries = segment(key);
+            synchronized (entries) {
+                if (generation.get() == loadGeneration) {
+                    entries.put(key, new Entry<>(value, clock.getAsLong() + ttlMillis));
+                }
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, clock.getAsLong() + ttlMillis);
+    }
+
+    /**
+     * Stores a value that expires at {@code expireAtMillis} or after the configured TTL, whichever comes first.
+     */
+    public void put(K key, V value, long expireAtMillis) {
+        LinkedHashMap<K, Entry<V>> entries = segment(key);
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, Math.min(expireAtMillis, clock.getAsLong() + ttlMillis)));
+        }
+    }
+
+    /**
+     * Replaces the value of {@code key} if it is cached; loads started before are not stored.
+     */
+    public void computeIfPresent(K key, UnaryOperator<V> change) {
+        LinkedHashMap<K, Entry<V>> entries = segment(key);
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expireAt > clock.getAsLong()) {
+                entries.put(key, new Entry<>(change.apply(entry.value), entry.expireAt));
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        LinkedHashMap<K, Entry<V>> entries = segment(key);
+        synchronized (entries) {
+            generation.incrementAndGet();
+            if (entries.remove(key) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void invalidateAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            invalidate(key);
+        }
+    }
+
+    public void clear() {
+        for (LinkedHashMap<K, Entry<V>> entries : segments) {
+            synchronized (entries) {
+                generation.incrementAndGet();
+                invalidations.add(entries.size());
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Drops every expired entry; useful for caches whose keys are rarely read twice.
+     */
+    public void cleanUp() {
+        for (LinkedHashMap<K, Entry<V>> entries : segments) {
+            synchronized (entries) {
+                long now = clock.getAsLong();
+                Iterator<Entry<V>> iterator = entries.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().expireAt <= now) {
+                        iterator.remove();
+                        expirations.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (LinkedHashMap<K, Entry<V>> entries : segments) {
+            synchronized (entries) {
+                size += entries.size();
+            }
+        }
+        return size;
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return new Stats(size(), maxSize, hitCount, missCount,
+                requests == 0 ? 0.0 : (double) hitCount / requests,
+                evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    private LinkedHashMap<K, Entry<V>> segment(K key) {
+        if (segments.size() == 1) {
+            return segments.get(0);
+        }
+        int hash = key.hashCode();
+        return segments.get(Math.floorMod(hash ^ (hash >>> 16), segments.size()));
+    }
+
+    @AllArgsConstructor
+    private static final class Entry<V> {
+        private final V value;
+        private final long expireAt;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final double hitRatio;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+    }
+}
@@ -1,18 +0,0 @@
-package com.enterprise.backend.util;
-
-import lombok.experimental.UtilityClass;
-
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
-@UtilityClass
-public class HTMLTemplateReader {
-    public static String readTemplate(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        byte[] bytes = Files.readAllBytes(path);
-        return new String(bytes, StandardCharsets.UTF_8);
-    }
-}
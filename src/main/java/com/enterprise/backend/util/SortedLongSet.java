@@ -0,0 +1,59 @@
+package com.enterprise.backend.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable set of longs held in one sorted array: eight bytes per element, a binary search per lookup.
+ * Changes return a new set, so an instance can be shared between threads.
+ */
+public final class SortedLongSet {
+
+    public static final SortedLongSet EMPTY = new SortedLongSet(new long[0]);
+
+    private final long[] values;
+
+    private SortedLongSet(long[] values) {
+        this.values = values;
+    }
+
+    public static SortedLongSet of(Collection<Long> values) {
+        if (values.isEmpty()) {
+            return EMPTY;
+        }
+        long[] sorted = values.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        return new SortedLongSet(sorted);
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public SortedLongSet with(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return this;
+        }
+        int at = -index - 1;
+        long[] added = new long[values.length + 1];
+        System.arraycopy(values, 0, added, 0, at);
+        added[at] = value;
+        System.arraycopy(values, at, added, at + 1, values.length - at);
+        return new SortedLongSet(added);
+    }
+
+    public SortedLongSet without(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return this;
+        }
+        long[] removed = new long[values.length - 1];
+        System.arraycopy(values, 0, removed, 0, index);
+        System.arraycopy(values, index + 1, removed, index, values.length - index - 1);
+        return new SortedLongSet(removed);
+    }
+
+    public int size() {
+        return values.length;
+    }
+}
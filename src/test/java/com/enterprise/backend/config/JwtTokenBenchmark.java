@@ -0,0 +1,66 @@
+package com.enterprise.backend.config;
+
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generate/verify throughput. {@code verifyUncachedKey} is the previous per-call
+ * {@code Jwts.parser().setSigningKey(secret)} path, kept as a baseline.
+ * Run with {@code mvn test-compile} and then {@code main}, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtTokenBenchmark {
+
+    private static final String SECRET = "secret-key";
+
+    private JwtToken jwtToken;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtToken = new JwtToken(SECRET);
+        token = jwtToken.generateToken("benchmark-user", List.of("ROLE_USER", "ROLE_ADMIN"));
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtToken.generateToken("benchmark-user", List.of("ROLE_USER", "ROLE_ADMIN"));
+    }
+
+    @Benchmark
+    public UserDetails verify() {
+        return jwtToken.verify(token).getPrincipal();
+    }
+
+    @Benchmark
+    public Object verifyUncachedKey() {
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtTokenBenchmark.class.getSimpleName()).build()).run();
+    }
+}
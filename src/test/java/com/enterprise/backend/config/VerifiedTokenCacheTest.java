@@ -0,0 +1,64 @@
+package com.enterprise.backend.config;
+
+import com.enterprise.backend.service.MetricsService;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VerifiedTokenCacheTest {
+
+    private final JwtToken jwtToken = jwtToken("test-secret");
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(jwtToken, 100, 3600, new MetricsService());
+
+    @Test
+    void verifiesEachTokenOnce() {
+        String token = jwtToken.generateToken("alice", List.of("ROLE_USER", "ROLE_ADMIN"));
+
+        UserDetails first = cache.get(token);
+        UserDetails second = cache.get(token);
+
+        assertSame(first, second);
+        assertEquals("alice", first.getUsername());
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), first.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).collect(Collectors.toSet()));
+        assertEquals(1, cache.stats().getVerifications());
+        assertEquals(1, cache.stats().getCache().getHits());
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKey() {
+        String forged = jwtToken("other-secret").generateToken("mallory", List.of("ROLE_SUPER_ADMIN"));
+
+        assertThrows(JwtException.class, () -> cache.get(forged));
+        assertThrows(JwtException.class, () -> cache.get(forged));
+        assertEquals(2, cache.stats().getVerifications());
+    }
+
+    @Test
+    void acceptsTokensSignedWithTheRawSecret() {
+        String token = Jwts.builder()
+                .setSubject("bob")
+                .claim("roles", "ROLE_USER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, "test-secret")
+                .compact();
+
+        assertEquals("bob", cache.get(token).getUsername());
+    }
+
+    private static JwtToken jwtToken(String secret) {
+        return new JwtToken(secret);
+    }
+}
@@ -0,0 +1,56 @@
+package com.enterprise.backend.controller;
+
+import com.enterprise.backend.model.entity.Authority;
+import com.enterprise.backend.model.entity.User;
+import com.enterprise.backend.support.IntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The user listing and search endpoints run MySQL full-text queries and are not covered on H2.
+ */
+class AdminControllerTest extends IntegrationTest {
+
+    private User superAdmin;
+
+    @BeforeEach
+    void setUp() {
+        superAdmin = saveUser(Authority.Role.ROLE_SUPER_ADMIN);
+    }
+
+    @Test
+    void setAuthority() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(6, post("/admin/authority")
+                .header(HttpHeaders.AUTHORIZATION, bearer(superAdmin))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("username", user.getId(), "role", "ROLE_ADMIN"))))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void banUser() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(3, post("/admin/ban")
+                .header(HttpHeaders.AUTHORIZATION, bearer(superAdmin))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("username", user.getId()))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getMetrics() throws Exception {
+        perform(0, get("/admin/metrics").header(HttpHeaders.AUTHORIZATION, bearer(superAdmin)))
+                .andExpect(status().isOk());
+    }
+}
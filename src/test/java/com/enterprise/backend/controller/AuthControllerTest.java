@@ -0,0 +1,54 @@
+package com.enterprise.backend.controller;
+
+import com.enterprise.backend.model.entity.Authority;
+import com.enterprise.backend.model.entity.User;
+import com.enterprise.backend.service.repository.CodeForgotPassRepository;
+import com.enterprise.backend.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthControllerTest extends IntegrationTest {
+
+    @Autowired
+    private CodeForgotPassRepository codeForgotPassRepository;
+
+    @Test
+    void login() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(1, post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("username", user.getId(), "password", PASSWORD))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void changePassword() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(3, post("/auth/change-password")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("username", user.getId(), "oldPassword", PASSWORD, "newPassword", "changed-password"))))
+                .andExpect(status().is2xxSuccessful());
+    }
+
+    @Test
+    void forgotAndResetPassword() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(3, post("/auth/forgot-mail/user/{username}", user.getId()))
+                .andExpect(status().is2xxSuccessful());
+        String code = codeForgotPassRepository.findAllByUser(user).orElseThrow().get(0).getCode();
+
+        perform(4, post("/auth/reset-pass")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("username", user.getId(), "code", code, "newPassword", "reset-password"))))
+                .andExpect(status().is2xxSuccessful());
+    }
+}
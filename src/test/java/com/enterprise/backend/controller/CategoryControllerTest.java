@@ -0,0 +1,70 @@
+package com.enterprise.backend.controller;
+
+import com.enterprise.backend.model.entity.Authority;
+import com.enterprise.backend.model.entity.Category;
+import com.enterprise.backend.model.entity.User;
+import com.enterprise.backend.support.IntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CategoryControllerTest extends IntegrationTest {
+
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        admin = saveUser(Authority.Role.ROLE_ADMIN);
+    }
+
+    @Test
+    void createCategory() throws Exception {
+        perform(3, post("/category")
+                .header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("name", "Category " + System.nanoTime(), "priority", nextPriority()))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getAllSortByPriority() throws Exception {
+        saveProduct(3);
+
+        perform(1, get("/category/get-all"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getCategoryById() throws Exception {
+        Category category = saveCategory();
+
+        perform(1, get("/category/{categoryId}", category.getId()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateCategory() throws Exception {
+        Category category = saveProduct(1).getCategories().iterator().next();
+
+        perform(4, patch("/category/{categoryId}", category.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("name", "Renamed " + System.nanoTime(), "priority", category.getPriority()))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void deleteCategory() throws Exception {
+        Category category = saveCategory();
+
+        perform(3, delete("/category/{categoryId}", category.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,679 @@
+package com.enterprise.backend.controller;
+
+import com.enterprise.backend.model.entity.*;
+import com.enterprise.backend.model.enums.OrderStatus;
+import com.enterprise.backend.model.enums.OrderTypeStatus;
+import com.enterprise.backend.model.error.ErrorCode;
+import com.enterprise.backend.service.FavoriteService;
+import com.enterprise.backend.service.ProductService;
+import com.enterprise.backend.service.image.ImageStorage;
+import com.enterprise.backend.service.image.ImageVariant;
+import com.enterprise.backend.service.image.LocalImageStorage;
+import com.enterprise.backend.service.repository.FavoriteProductRepository;
+import com.enterprise.backend.service.repository.OrderRepository;
+import com.enterprise.backend.service.repository.ProductOrderRepository;
+import com.enterprise.backend.service.repository.ProductRepository;
+import com.enterprise.backend.service.repository.ReviewRepository;
+import com.enterprise.backend.service.search.ProductSearchIndex;
+import com.enterprise.backend.support.IntegrationTest;
+import com.jayway.jsonpath.JsonPath;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * List endpoints are measured over several rows with several associations each, so a per-row query shows up as
+ * a budget overrun.
+ */
+class ProductControllerTest extends IntegrationTest {
+
+    @Autowired
+    private ProductOrderRepository productOrderRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private FavoriteService favoriteService;
+    @Autowired
+    private FavoriteProductRepository favoriteProductRepository;
+    @Autowired
+    private LocalImageStorage imageStorage;
+
+    private User admin;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        admin = saveUser(Authority.Role.ROLE_ADMIN);
+        user = saveUser(Authority.Role.ROLE_USER);
+    }
+
+    @Test
+    void createProduct() throws Exception {
+        Category category = saveCategory();
+
+        perform(4, post("/product")
+                .header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(productRequest(category))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void search() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            saveProduct(2);
+        }
+
+        perform(3, get("/product/search").param("pageSize", "5"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void pagesThroughWithCursor() throws Exception {
+        Category category = saveCategory();
+        List<Product> products = new ArrayList<>();
+        for (Long price : Arrays.asList(200L, 100L, null, 100L, 300L, null, 100L)) {
+            products.add(saveProduct(category, price));
+        }
+
+        Comparator<Product> byPrice = Comparator.comparing(Product::getPrice, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Product::getId);
+        assertEquals(ids(products, byPrice), pageIds(category, "price", false));
+        assertEquals(ids(products, byPrice.reversed()), pageIds(category, "price", true));
+        assertEquals(ids(products, Comparator.comparing(Product::getId).reversed()), pageIds(category, "id", true));
+    }
+
+    @Test
+    void cursorMustMatchTheOrdering() throws Exception {
+        Category category = saveCategory();
+        for (int i = 0; i < 3; i++) {
+            saveProduct(category, 100L);
+        }
+        String cursor = JsonPath.read(mockMvc.perform(get("/product/search")
+                        .param("categoryId", category.getId().toString())
+                        .param("orderBy", "price").param("isDesc", "false").param("pageSize", "2"))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/product/search")
+                        .param("categoryId", category.getId().toString())
+                        .param("orderBy", "price").param("isDesc", "true").param("pageSize", "2")
+                        .param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/product/search").param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void totalsFollowProductWrites() throws Exception {
+        Category category = saveCategory();
+        saveProduct(category, 100L);
+        mockMvc.perform(get("/product/search").param("categoryId", category.getId().toString()))
+                .andExpect(jsonPath("$.totalElements").value(1));
+
+        mockMvc.perform(post("/product")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(productRequest(category))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/product/search").param("categoryId", category.getId().toString()))
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
+    @Test
+    void broadTitleMatchesAreSearchedInChunks() throws Exception {
+        String token = "broad" + System.nanoTime();
+        Category category = saveCategory();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Product product = saveProduct(category, 100L * i);
+            // the last one only matches through its description, which a title like filter would miss
+            if (i < 4) {
+                product.setTitle(token + " " + i);
+            } else {
+                product.setDescription(token);
+            }
+            productRepository.save(product);
+            productSearchIndex.index(product.getId(), product.getTitle(), product.getDescription());
+            ids.add(product.getId());
+        }
+
+        ReflectionTestUtils.setField(productService, "idChunkSize", 2);
+        try {
+            mockMvc.perform(get("/product/search").param("title", token).param("orderBy", "relevance"))
+                    .andExpect(jsonPath("$.totalElements").value(5));
+
+            MvcResult first = mockMvc.perform(get("/product/search").param("title", token)
+                            .param("orderBy", "price").param("isDesc", "true").param("pageSize", "3")
+                            .param("facets", "true"))
+                    .andExpect(jsonPath("$.totalElements").value(5))
+                    .andExpect(jsonPath("$.facets.categories[0].count").value(5))
+                    .andReturn();
+            assertEquals(List.of(ids.get(4), ids.get(3), ids.get(2)), contentIds(first));
+            String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+            MvcResult second = mockMvc.perform(get("/product/search").param("title", token)
+                            .param("orderBy", "price").param("isDesc", "true").param("pageSize", "3")
+                            .param("cursor", cursor))
+                    .andReturn();
+            assertEquals(List.of(ids.get(1), ids.get(0)), contentIds(second));
+        } finally {
+            ReflectionTestUtils.setField(productService, "idChunkSize", 1000);
+        }
+    }
+
+    @Test
+    void facets() throws Exception {
+        Category category = saveCategory();
+        Category other = saveCategory();
+        for (Long price : Arrays.asList(100L, 200L, 499L, 500L, null)) {
+            Product product = saveProduct(category, price);
+            if (price != null && (price == 100L || price == 500L)) {
+                product.getCategories().add(other);
+                productRepository.save(product);
+            }
+        }
+
+        // bounds belong to the bucket they open; products without a price fall in no bucket
+        mockMvc.perform(get("/product/search").param("facets", "true")
+                        .param("categoryId", category.getId().toString())
+                        .param("priceBuckets", "500", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(5))
+                .andExpect(jsonPath("$.facets.prices.length()").value(3))
+                .andExpect(jsonPath("$.facets.prices[0].from").doesNotExist())
+                .andExpect(jsonPath("$.facets.prices[0].to").value(200))
+                .andExpect(jsonPath("$.facets.prices[0].count").value(1))
+                .andExpect(jsonPath("$.facets.prices[1].from").value(200))
+                .andExpect(jsonPath("$.facets.prices[1].to").value(500))
+                .andExpect(jsonPath("$.facets.prices[1].count").value(2))
+                .andExpect(jsonPath("$.facets.prices[2].from").value(500))
+                .andExpect(jsonPath("$.facets.prices[2].to").doesNotExist())
+                .andExpect(jsonPath("$.facets.prices[2].count").value(1))
+                .andExpect(jsonPath("$.facets.categories[?(@.id == %d)].count", category.getId()).value(5))
+                .andExpect(jsonPath("$.facets.categories[?(@.id == %d)].count", other.getId()).value(2));
+
+        // each facet ignores its own filter but applies the others
+        mockMvc.perform(get("/product/search").param("facets", "true")
+                        .param("categoryId", other.getId().toString())
+                        .param("fromPrice", "200")
+                        .param("priceBuckets", "200", "500"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.facets.prices[0].count").value(1))
+                .andExpect(jsonPath("$.facets.prices[1].count").value(0))
+                .andExpect(jsonPath("$.facets.prices[2].count").value(1))
+                .andExpect(jsonPath("$.facets.categories[?(@.id == %d)].count", category.getId()).value(3))
+                .andExpect(jsonPath("$.facets.categories[?(@.id == %d)].count", other.getId()).value(1));
+    }
+
+    @Test
+    void facetsOfAnEmptyResult() throws Exception {
+        mockMvc.perform(get("/product/search").param("facets", "true")
+                        .param("title", "nothing-matches-" + System.nanoTime())
+                        .param("priceBuckets", "200", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0))
+                .andExpect(jsonPath("$.facets.categories").isEmpty())
+                .andExpect(jsonPath("$.facets.prices[*].count", contains(0, 0, 0)));
+    }
+
+    @Test
+    void updateProduct() throws Exception {
+        Product product = saveProduct(2);
+
+        perform(6, patch("/product/{productId}", product.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(productRequest(saveCategory()))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void deleteProduct() throws Exception {
+        Product product = saveProduct(2);
+
+        perform(6, delete("/product/{productId}", product.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getById() throws Exception {
+        Product product = saveProduct(3);
+
+        perform(2, get("/product/get-by-id/{productId}", product.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void cacheListProducts() throws Exception {
+        Product first = saveProduct(2);
+        Product second = saveProduct(2);
+
+        perform(1, get("/product/cache-list-products")
+                .param("productIds", first.getId().toString(), second.getId().toString()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void listsMarkFavorites() throws Exception {
+        Product liked = saveProduct(2);
+        Product other = saveProduct(2);
+        favoriteService.add(user.getId(), liked.getId());
+
+        perform(3, get("/product/search").param("pageSize", "5")
+                .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$.content[?(@.id == %d)].favorite", liked.getId()).value(true))
+                .andExpect(jsonPath("$.content[?(@.id == %d)].favorite", other.getId()).value(false));
+        perform(1, get("/product/cache-list-products")
+                .param("productIds", liked.getId().toString(), other.getId().toString())
+                .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$[?(@.id == %d)].favorite", liked.getId()).value(true))
+                .andExpect(jsonPath("$[?(@.id == %d)].favorite", other.getId()).value(false));
+    }
+
+    @Test
+    void order() throws Exception {
+        Product first = saveProduct(0);
+        Product second = saveProduct(0);
+
+        perform(6, post("/product/order")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("receiverFullName", "Receiver", "email", "receiver@example.com",
+                        "phoneNumber", "0123456789", "addressDetail", "Ha Noi", "htmlContent", "<p>order</p>",
+                        "products", List.of(Map.of("productId", first.getId(), "quantity", 1),
+                                Map.of("productId", second.getId(), "quantity", 2))))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void addAndDeleteFavoriteProduct() throws Exception {
+        Product product = saveProduct(0);
+
+        perform(3, post("/product/favorite/{productId}", product.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk());
+        perform(2, get("/product/get-by-id/{productId}", product.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$.favorite").value(true));
+        perform(1, delete("/product/favorite/{productId}", product.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk());
+        perform(0, get("/product/get-by-id/{productId}", product.getId())
+                .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$.favorite").value(false));
+    }
+
+    @Test
+    void addingAFavoriteTwiceIsANoOp() throws Exception {
+        Product product = saveProduct(0);
+        favoriteService.favoritesOf(user.getId());
+        // written behind the cached set, as another node would
+        favoriteProductRepository.save(new FavoriteProduct(user.getId(), product.getId()));
+
+        mockMvc.perform(post("/product/favorite/{productId}", product.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk());
+        assertEquals(List.of(product.getId()), favoriteProductRepository.findProductIdsByUserId(user.getId()));
+    }
+
+    @Test
+    void removingAMissingFavoriteIsRejected() throws Exception {
+        Product product = saveProduct(0);
+
+        mockMvc.perform(delete("/product/favorite/{productId}", product.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.description").value(ErrorCode.PRODUCT_ORDER_NOT_FOUND.description()));
+        mockMvc.perform(delete("/product/favorite/{productId}", -1L)
+                        .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.description").value(ErrorCode.PRODUCT_NOT_FOUND.description()));
+    }
+
+    @Test
+    void updateOrderStatus() throws Exception {
+        ProductOrder productOrder = createOrders(user, OrderTypeStatus.BUY, 1, 3).get(0);
+
+        perform(5, patch("/product/order/{productOrderId}:{status}", productOrder.getId(), "CANCELLED")
+                .header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void cancelledOrderCannotBeReopened() throws Exception {
+        ProductOrder productOrder = createOrders(user, OrderTypeStatus.BUY, 1, 1).get(0);
+        Long productId = orderRepository.findAll().stream()
+                .filter(order -> order.getProductOrder().getId().equals(productOrder.getId()))
+                .findFirst().orElseThrow().getProduct().getId();
+
+        mockMvc.perform(patch("/product/order/{productOrderId}:{status}", productOrder.getId(), "CANCELLED")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/product/order/{productOrderId}:{status}", productOrder.getId(), "NEW")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/product/order/{productOrderId}:{status}", productOrder.getId(), "CANCELLED")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isOk());
+
+        assertEquals(OrderStatus.CANCELLED, productOrderRepository.findById(productOrder.getId()).orElseThrow().getStatus());
+        // the one reserved unit went back to stock once
+        assertEquals(11L, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void getProductOrderByMe() throws Exception {
+        createOrders(user, OrderTypeStatus.BUY, 5, 3);
+
+        perform(4, get("/product/order/get-by-me").header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void adminSearchProductOrder() throws Exception {
+        createOrders(user, OrderTypeStatus.BUY, 5, 3);
+
+        perform(3, get("/product/order/admin-search").header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void favoriteSearchProductOrder() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            favoriteService.add(user.getId(), saveProduct(2).getId());
+        }
+        createOrders(user, OrderTypeStatus.FAVORITE, 2, 1);
+        favoriteService.migrateLegacyFavorites();
+
+        perform(3, get("/product/order/favorite-search").header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(5))
+                .andExpect(jsonPath("$.content[0].type").value("FAVORITE"))
+                .andExpect(jsonPath("$.content[0].email").value(user.getEmail()))
+                .andExpect(jsonPath("$.content[0].orders[0].product.favorite").value(true));
+    }
+
+    @Test
+    void favoriteSearchAppliesOrderFiltersAndSort() throws Exception {
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            productIds.add(saveProduct(0).getId());
+            favoriteService.add(user.getId(), productIds.get(i));
+        }
+
+        String body = mockMvc.perform(get("/product/order/favorite-search")
+                        .param("isDesc", "false").param("pageSize", "2")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andReturn().getResponse().getContentAsString();
+        List<Number> firstPage = JsonPath.read(body, "$.content[*].orders[0].product.id");
+        assertEquals(productIds.subList(0, 2), firstPage.stream().map(Number::longValue).collect(Collectors.toList()));
+
+        mockMvc.perform(get("/product/order/favorite-search")
+                        .param("email", user.getEmail().toUpperCase())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$.content[0].orders[0].product.id").value(productIds.get(2)));
+        mockMvc.perform(get("/product/order/favorite-search")
+                        .param("email", "someone-else")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$.totalElements").value(0));
+        mockMvc.perform(get("/product/order/favorite-search")
+                        .param("status", "COMPLETED")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    @Test
+    void getReviewByProduct() throws Exception {
+        Product product = saveProduct(0);
+        for (int i = 0; i < 5; i++) {
+            Review review = new Review();
+            review.setRate(4);
+            review.setComment("Review " + i);
+            User reviewer = saveUser(Authority.Role.ROLE_USER);
+            review.setUser(reviewer);
+            review.setReviewerName(reviewer.getFullName());
+            review.setProduct(product);
+            reviewRepository.save(review);
+        }
+        Review anonymous = new Review();
+        anonymous.setRate(3);
+        anonymous.setProduct(product);
+        reviewRepository.save(anonymous);
+
+        perform(3, get("/product/review/{productId}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(6))
+                .andExpect(jsonPath("$.content[5].fullName").value("Reviewer"));
+        perform(0, get("/product/review/{productId}", product.getId()))
+                .andExpect(jsonPath("$.totalElements").value(6));
+    }
+
+    @Test
+    void getMissingImage() throws Exception {
+        perform(0, get("/product/images/{filename}", "missing-" + System.nanoTime() + ".png"));
+    }
+
+    @Test
+    void serveImageWithValidatorsAndRanges() throws Exception {
+        Path image = Files.createDirectories(Paths.get("image")).resolve("test-" + System.nanoTime() + ".png");
+        Files.write(image, "0123456789".getBytes());
+        try {
+            MvcResult full = perform(0, get("/product/images/{filename}", image.getFileName().toString()))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                    .andExpect(content().string("0123456789"))
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public"))
+                    .andReturn();
+            String etag = full.getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get("/product/images/{filename}", image.getFileName().toString())
+                            .header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get("/product/images/{filename}", image.getFileName().toString())
+                            .header(HttpHeaders.RANGE, "bytes=2-5"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                    .andExpect(content().string("2345"));
+            mockMvc.perform(get("/product/images/{filename}", image.getFileName().toString())
+                            .header(HttpHeaders.RANGE, "bytes=20-"))
+                    .andExpect(status().isRequestedRangeNotSatisfiable())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+        } finally {
+            Files.deleteIfExists(image);
+        }
+    }
+
+    @Test
+    void storeImagesByContentHash() throws Exception {
+        byte[] bytes = ("image " + System.nanoTime()).getBytes();
+        String key = imageStorage.put(new ByteArrayInputStream(bytes), "Photo.PNG");
+        Path stored = imageStorage.localFile(key, null);
+        try {
+            assertEquals(key, imageStorage.put(new ByteArrayInputStream(bytes), "copy.png"));
+            assertEquals(imageStorage.getDirectory().resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key),
+                    stored);
+            assertTrue(key.endsWith(".png"));
+
+            perform(0, get("/product/images/{filename}", key))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(bytes))
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"" + ImageStorage.contentHash(key) + "\""))
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+        } finally {
+            Files.deleteIfExists(stored);
+        }
+    }
+
+    @Test
+    void uploadFileBatch() throws Exception {
+        byte[] large = new byte[200 * 1024];
+        new Random(1).nextBytes(large);
+        byte[] small = ("image " + System.nanoTime()).getBytes();
+        List<Path> stored = new ArrayList<>();
+        try {
+            MvcResult result = perform(0, multipart("/product/uploads")
+                    .file(new MockMultipartFile("files", "large.bin", "application/octet-stream", large))
+                    .file(new MockMultipartFile("files", "small.bin", "application/octet-stream", small))
+                    .header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].fileName").value("large.bin"))
+                    .andExpect(jsonPath("$[0].size").value(large.length))
+                    .andExpect(jsonPath("$[1].size").value(small.length))
+                    .andExpect(jsonPath("$[1].millis").isNumber())
+                    .andReturn();
+
+            for (int i = 0; i < 2; i++) {
+                String url = JsonPath.read(result.getResponse().getContentAsString(), "$[" + i + "].url");
+                String key = url.substring(url.lastIndexOf('/') + 1);
+                stored.add(imageStorage.localFile(key, null));
+                assertEquals(DigestUtils.sha256Hex(i == 0 ? large : small) + ".bin", key);
+                assertArrayEquals(i == 0 ? large : small, Files.readAllBytes(stored.get(i)));
+            }
+        } finally {
+            for (Path file : stored) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void serveImageVariantOnceGenerated() throws Exception {
+        Path image = Files.createDirectories(Paths.get("image")).resolve("test-" + System.nanoTime() + ".png");
+        ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB), "png", image.toFile());
+        // variants are written in declaration order, so the last one marks the whole set done
+        Path last = imageStorage.localFile(image.getFileName().toString(), ImageVariant.DETAIL);
+        try {
+            mockMvc.perform(get("/product/images/{filename}", image.getFileName().toString()).param("size", "thumb"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+            for (int i = 0; i < 100 && !Files.exists(last); i++) {
+                Thread.sleep(100);
+            }
+            byte[] body = mockMvc.perform(get("/product/images/{filename}", image.getFileName().toString())
+                            .param("size", "thumb"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public"))
+                    .andReturn().getResponse().getContentAsByteArray();
+            BufferedImage served = ImageIO.read(new ByteArrayInputStream(body));
+            assertEquals(160, served.getWidth());
+            assertEquals(120, served.getHeight());
+        } finally {
+            Files.deleteIfExists(image);
+            for (ImageVariant variant : ImageVariant.values()) {
+                Files.deleteIfExists(imageStorage.localFile(image.getFileName().toString(), variant));
+            }
+        }
+    }
+
+    private Product saveProduct(Category category, Long price) {
+        Product product = saveProduct(0);
+        product.getCategories().add(category);
+        product.setPrice(price);
+        return productRepository.save(product);
+    }
+
+    private List<Long> ids(List<Product> products, Comparator<Product> order) {
+        return products.stream().sorted(order).map(Product::getId).collect(Collectors.toList());
+    }
+
+    private List<Long> contentIds(MvcResult result) throws Exception {
+        List<Number> ids = JsonPath.read(result.getResponse().getContentAsString(), "$.content[*].id");
+        return ids.stream().map(Number::longValue).collect(Collectors.toList());
+    }
+
+    /**
+     * Walks every page of a category two rows at a time, following {@code nextCursor}.
+     */
+    private List<Long> pageIds(Category category, String orderBy, boolean desc) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/product/search")
+                    .param("categoryId", category.getId().toString())
+                    .param("orderBy", orderBy)
+                    .param("isDesc", String.valueOf(desc))
+                    .param("pageSize", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(greaterThanOrEqualTo(1)))
+                    .andReturn().getResponse().getContentAsString();
+            List<Number> page = JsonPath.read(body, "$.content[*].id");
+            page.forEach(id -> ids.add(id.longValue()));
+            cursor = JsonPath.read(body, "$.nextCursor");
+        } while (cursor != null);
+        return ids;
+    }
+
+    private Map<String, Object> productRequest(Category category) {
+        return Map.of("title", "Product " + System.nanoTime(), "description", "Description",
+                "imagesUrl", List.of("image.png"), "price", 1000, "quantity", 10,
+                "categoryIds", List.of(category.getId()));
+    }
+
+    private List<ProductOrder> createOrders(User owner, OrderTypeStatus type, int orders, int lines) {
+        List<ProductOrder> result = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            ProductOrder productOrder = productOrderRepository.save(ProductOrder.builder()
+                    .user(owner)
+                    .type(type)
+                    .status(OrderStatus.NEW)
+                    .build());
+            for (int j = 0; j < lines; j++) {
+                orderRepository.save(Orders.builder()
+                        .product(saveProduct(0))
+                        .productOrder(productOrder)
+                        .quantity(1)
+                        .build());
+            }
+            result.add(productOrder);
+        }
+        return result;
+    }
+}
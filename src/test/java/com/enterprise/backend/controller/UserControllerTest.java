@@ -0,0 +1,88 @@
+package com.enterprise.backend.controller;
+
+import com.enterprise.backend.model.entity.Authority;
+import com.enterprise.backend.model.entity.Product;
+import com.enterprise.backend.model.entity.User;
+import com.enterprise.backend.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserControllerTest extends IntegrationTest {
+
+    @Test
+    void registrationUser() throws Exception {
+        String id = String.valueOf(System.nanoTime());
+        perform(6, post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("password", PASSWORD, "fullName", "New User",
+                        "email", "new" + id + "@example.com", "phone", id.substring(0, 12)))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getProfile() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(2, get("/user").header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getProfileByUsername() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(2, get("/user/{username}", user.getId()).header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateUser() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+
+        perform(5, patch("/user")
+                .header(HttpHeaders.AUTHORIZATION, bearer(user))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("fullName", "Renamed"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void addReview() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+        Product product = saveProduct(0);
+
+        perform(4, post("/user/review")
+                .header(HttpHeaders.AUTHORIZATION, bearer(user))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("rate", 4, "comment", "Good", "productId", product.getId()))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void renameUpdatesReviewPage() throws Exception {
+        User user = saveUser(Authority.Role.ROLE_USER);
+        Product product = saveProduct(0);
+        mockMvc.perform(post("/user/review")
+                .header(HttpHeaders.AUTHORIZATION, bearer(user))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("rate", 5, "comment", "Great", "productId", product.getId()))));
+        mockMvc.perform(get("/product/review/{productId}", product.getId()))
+                .andExpect(jsonPath("$.content[0].fullName").value(user.getFullName()));
+
+        mockMvc.perform(patch("/user")
+                .header(HttpHeaders.AUTHORIZATION, bearer(user))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("fullName", "Renamed"))));
+
+        mockMvc.perform(get("/product/review/{productId}", product.getId()))
+                .andExpect(jsonPath("$.content[0].fullName").value("Renamed"))
+                .andExpect(jsonPath("$.content[0].userId").value(user.getId()));
+    }
+}
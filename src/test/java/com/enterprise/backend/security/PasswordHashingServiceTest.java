@@ -0,0 +1,42 @@
+package com.enterprise.backend.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTest {
+
+    private final PasswordHashingService passwordEncoder = new PasswordHashingService("bcrypt", 5, 2, 10, 5000);
+
+    @AfterEach
+    void destroy() {
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    void encodesWithIdAndMatches() {
+        String encoded = passwordEncoder.encode("secret");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(passwordEncoder.matches("secret", encoded));
+        assertFalse(passwordEncoder.matches("other", encoded));
+        assertFalse(passwordEncoder.upgradeEncoding(encoded));
+        assertEquals(3, passwordEncoder.stats().getEncodes() + passwordEncoder.stats().getMatches());
+    }
+
+    @Test
+    void legacyAndOtherCostHashesAreUpgraded() {
+        String legacy = new BCryptPasswordEncoder(5).encode("secret");
+        String stronger = "{bcrypt}" + new BCryptPasswordEncoder(6).encode("secret");
+        String cheaper = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(passwordEncoder.matches("secret", legacy));
+        assertTrue(passwordEncoder.upgradeEncoding(legacy));
+        assertTrue(passwordEncoder.upgradeEncoding(stronger));
+        assertTrue(passwordEncoder.upgradeEncoding(cheaper));
+    }
+}
@@ -0,0 +1,153 @@
+package com.enterprise.backend.service;
+
+import com.enterprise.backend.model.entity.*;
+import com.enterprise.backend.model.enums.OrderTypeStatus;
+import com.enterprise.backend.model.request.SearchProductOrderRequest;
+import com.enterprise.backend.model.request.SearchRequest;
+import com.enterprise.backend.model.response.ProductOrderResponse;
+import com.enterprise.backend.model.response.ProductResponse;
+import com.enterprise.backend.model.response.ReviewResponse;
+import com.enterprise.backend.service.repository.*;
+import com.enterprise.backend.support.IntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Associations are lazy; every read path fetches what it renders with a fixed number of statements,
+ * however many rows and associated rows there are.
+ */
+class FetchPlanStatementTest extends IntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductOrderService productOrderService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private ReviewService reviewService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ProductOrderRepository productOrderRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void productByIdLoadsCategoriesInOneStatement() {
+        Product small = saveProduct(1);
+        Product large = saveProduct(5);
+
+        int single = count(() -> productService.getById(small.getId()));
+        List<ProductResponse> result = new ArrayList<>();
+        int many = count(() -> result.add(productService.getById(large.getId())));
+
+        assertEquals(1, single);
+        assertEquals(single, many);
+        assertEquals(5, result.get(0).getOfCategories().size());
+    }
+
+    @Test
+    void categoriesDoNotLoadProducts() {
+        saveProduct(3);
+
+        assertEquals(1, count(() -> categoryService.getAllSortByPriority()));
+    }
+
+    @Test
+    void ordersByMeDoNotGrowWithOrdersOrLines() {
+        User few = saveUser(Authority.Role.ROLE_USER);
+        createOrders(few, 1, 1);
+        User many = saveUser(Authority.Role.ROLE_USER);
+        createOrders(many, 5, 4);
+
+        int single = countAs(few, () -> productOrderService.getProductOrderByMe(new SearchProductOrderRequest()));
+        List<Page<ProductOrderResponse>> result = new ArrayList<>();
+        int multiple = countAs(many, () -> result.add(productOrderService.getProductOrderByMe(new SearchProductOrderRequest())));
+
+        assertEquals(single, multiple);
+        assertEquals(5, result.get(0).getContent().size());
+        result.get(0).getContent().forEach(order -> assertEquals(4, order.getOrders().size()));
+    }
+
+    @Test
+    void reviewsDoNotGrowWithReviewers() {
+        Product few = saveProduct(0);
+        createReviews(few, 1);
+        Product many = saveProduct(0);
+        createReviews(many, 6);
+
+        int single = count(() -> reviewService.getReviewByProduct(new SearchRequest() {
+        }, few.getId()));
+        List<Page<ReviewResponse>> result = new ArrayList<>();
+        int multiple = count(() -> result.add(reviewService.getReviewByProduct(new SearchRequest() {
+        }, many.getId())));
+
+        assertEquals(single, multiple);
+        result.get(0).getContent().forEach(review -> assertEquals("Reviewer", review.getFullName()));
+    }
+
+    @Test
+    void loginLoadsUserAndRolesInOneStatement() {
+        User user = saveUser(Authority.Role.ROLE_ADMIN, Authority.Role.ROLE_USER);
+        List<UserDetails> result = new ArrayList<>();
+
+        assertEquals(1, count(() -> result.add(userService.loadUserByUsername(user.getId()))));
+        assertEquals(2, result.get(0).getAuthorities().size());
+    }
+
+    private int countAs(User user, Runnable action) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getId(), null, List.of()));
+        return count(action);
+    }
+
+    private int count(Runnable action) {
+        statementCounter.reset();
+        action.run();
+        return statementCounter.get();
+    }
+
+    private void createOrders(User user, int orders, int lines) {
+        for (int i = 0; i < orders; i++) {
+            ProductOrder productOrder = productOrderRepository.save(
+                    ProductOrder.builder().user(user).type(OrderTypeStatus.BUY).build());
+            for (int j = 0; j < lines; j++) {
+                orderRepository.save(Orders.builder()
+                        .product(saveProduct(0))
+                        .productOrder(productOrder)
+                        .quantity(1)
+                        .build());
+            }
+        }
+    }
+
+    private void createReviews(Product product, int reviews) {
+        for (int i = 0; i < reviews; i++) {
+            Review review = new Review();
+            review.setRate(5);
+            User reviewer = saveUser();
+            review.setUser(reviewer);
+            review.setReviewerName(reviewer.getFullName());
+            review.setProduct(product);
+            reviewRepository.save(review);
+        }
+    }
+}
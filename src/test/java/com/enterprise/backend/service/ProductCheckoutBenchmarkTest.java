@@ -0,0 +1,268 @@
+package com.enterprise.backend.service;
+
+import com.enterprise.backend.exception.EnterpriseBackendException;
+import com.enterprise.backend.model.entity.Authority;
+import com.enterprise.backend.model.entity.Product;
+import com.enterprise.backend.model.entity.ProductOrder;
+import com.enterprise.backend.model.entity.User;
+import com.enterprise.backend.model.enums.OrderStatus;
+import com.enterprise.backend.model.request.ProductOrderRequest;
+import com.enterprise.backend.service.mail.MailDispatcher;
+import com.enterprise.backend.service.mail.OrderNotificationRelay;
+import com.enterprise.backend.service.repository.OrderNotificationRepository;
+import com.enterprise.backend.service.repository.OrderRepository;
+import com.enterprise.backend.service.repository.ProductOrderRepository;
+import com.enterprise.backend.service.repository.ProductRepository;
+import com.enterprise.backend.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+
+import javax.mail.MessagingException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checkout must cost a constant number of statements, whatever the number of cart lines,
+ * and must never sell more than the stock under concurrent buyers.
+ */
+class ProductCheckoutBenchmarkTest extends IntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductOrderRepository productOrderRepository;
+    @Autowired
+    private OrderNotificationRepository orderNotificationRepository;
+    @Autowired
+    private OrderNotificationRelay orderNotificationRelay;
+    @Autowired
+    private MailDispatcher mailDispatcher;
+
+    @Test
+    void statementsPerOrderDoNotGrowWithCartSize() {
+        int single = checkout(createProducts(1, 10));
+        int cart = checkout(createProducts(20, 10));
+        assertEquals(single, cart, "checkout statements for 1 line and for 20 lines");
+    }
+
+    @Test
+    void insufficientStockTakesNothing() throws InterruptedException {
+        List<Product> products = createProducts(3, 1);
+        ProductOrderRequest request = request(products, 1);
+        request.getProducts().get(2).setQuantity(2);
+        long ordersBefore = orderRepository.count();
+        drainOutbox();
+
+        assertThrows(EnterpriseBackendException.class, () -> productService.orderProduct(request));
+
+        products.forEach(product ->
+                assertEquals(1L, productRepository.findById(product.getId()).orElseThrow().getQuantity()));
+        assertEquals(ordersBefore, orderRepository.count());
+        assertEquals(0L, orderNotificationRepository.count());
+    }
+
+    @Test
+    void orderMailsAreRelayedFromOutbox() throws InterruptedException {
+        Product product = createProducts(1, 10).get(0);
+        ProductOrderRequest request = request(List.of(product), 1);
+        request.setEmail("outbox@example.com");
+        productService.orderProduct(request);
+        productService.updateOrderStatus(lastOrder().getId(), OrderStatus.PENDING);
+        long deadline = System.currentTimeMillis() + 15000;
+        while (countMailsTo("outbox@example.com") < 2) {
+            assertTrue(System.currentTimeMillis() < deadline, "mails not delivered");
+            orderNotificationRelay.relay();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void undeliveredMailsStayInOutbox() throws InterruptedException {
+        drainOutbox();
+        Product product = createProducts(1, 10).get(0);
+        ProductOrderRequest request = request(List.of(product), 1);
+        request.setEmail("undelivered@example.com");
+        long failedBefore = mailDispatcher.stats().getFailed();
+        mailSender.failNext(Integer.MAX_VALUE);
+        try {
+            productService.orderProduct(request);
+            orderNotificationRelay.relay();
+            long deadline = System.currentTimeMillis() + 15000;
+            while (mailDispatcher.stats().getFailed() == failedBefore) {
+                assertTrue(System.currentTimeMillis() < deadline, "mail not given up");
+                Thread.sleep(10);
+            }
+            assertEquals(1L, orderNotificationRepository.count());
+        } finally {
+            mailSender.failNext(0);
+        }
+
+        drainOutbox();
+        assertTrue(countMailsTo("undelivered@example.com") >= 1);
+    }
+
+    @Test
+    void retriesOnlyMailRecipientsThatMissedTheMail() throws InterruptedException {
+        drainOutbox();
+        User admin = saveUser(Authority.Role.ROLE_ADMIN);
+        Product product = createProducts(1, 10).get(0);
+        ProductOrderRequest request = request(List.of(product), 1);
+        request.setEmail("rejected@example.com");
+        mailSender.reject("rejected@example.com");
+        try {
+            productService.orderProduct(request);
+            orderNotificationRelay.relay();
+            long deadline = System.currentTimeMillis() + 15000;
+            while (orderNotificationRepository.findAll().stream().noneMatch(row -> row.getAttempts() > 0)) {
+                assertTrue(System.currentTimeMillis() < deadline, "notification not released");
+                Thread.sleep(10);
+            }
+        } finally {
+            mailSender.accept("rejected@example.com");
+        }
+
+        drainOutbox();
+        assertEquals(1L, countMailsTo(admin.getEmail()));
+        assertEquals(1L, countMailsTo("rejected@example.com"));
+    }
+
+    @Test
+    void parallelBuyersNeverOversell() throws InterruptedException {
+        int stock = 100;
+        int buyers = 500;
+        Product product = createProducts(1, stock).get(0);
+        long ordersBefore = orderRepository.count();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        for (int i = 0; i < buyers; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    productService.orderProduct(request(List.of(product), 1));
+                    sold.incrementAndGet();
+                } catch (EnterpriseBackendException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+        assertEquals(stock, sold.get(), "orders sold");
+        assertEquals(buyers - stock, rejected.get(), "orders rejected");
+        assertEquals(0L, productRepository.findById(product.getId()).orElseThrow().getQuantity());
+        assertEquals(ordersBefore + stock, orderRepository.count());
+    }
+
+    @Test
+    void cancellingReleasesStockOnce() {
+        Product product = createProducts(1, 10).get(0);
+        productService.orderProduct(request(List.of(product), 4));
+        Long productOrderId = lastOrder().getId();
+
+        productService.updateOrderStatus(productOrderId, OrderStatus.CANCELLED);
+        productService.updateOrderStatus(productOrderId, OrderStatus.CANCELLED);
+
+        assertEquals(10L, productRepository.findById(product.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void expiredReservationsAreReleased() {
+        Product product = createProducts(1, 10).get(0);
+        productService.orderProduct(request(List.of(product), 3));
+        Long productOrderId = lastOrder().getId();
+
+        assertFalse(productService.findExpiredOrderIds(LocalDateTime.now().minusMinutes(1), 100).contains(productOrderId));
+        assertTrue(productService.findExpiredOrderIds(LocalDateTime.now().plusMinutes(1), 10_000).contains(productOrderId));
+        assertTrue(productService.expireOrder(productOrderId));
+        assertFalse(productService.expireOrder(productOrderId));
+
+        assertEquals(10L, productRepository.findById(product.getId()).orElseThrow().getQuantity());
+        assertEquals(OrderStatus.CANCELLED, productOrderRepository.findById(productOrderId).orElseThrow().getStatus());
+    }
+
+    private void drainOutbox() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15000;
+        while (orderNotificationRepository.count() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "outbox not drained");
+            orderNotificationRelay.relay();
+            Thread.sleep(10);
+        }
+    }
+
+    private long countMailsTo(String email) {
+        return mailSender.getDelivered().stream().filter(message -> {
+            try {
+                return email.equals(message.getAllRecipients()[0].toString());
+            } catch (MessagingException e) {
+                return false;
+            }
+        }).count();
+    }
+
+    private ProductOrder lastOrder() {
+        return productOrderRepository.findAll(Sort.by(Sort.Direction.DESC, "id")).get(0);
+    }
+
+    private int checkout(List<Product> products) {
+        long ordersBefore = orderRepository.count();
+        statementCounter.reset();
+        productService.orderProduct(request(products, 2));
+        int statements = statementCounter.get();
+
+        products.forEach(product ->
+                assertEquals(8L, productRepository.findById(product.getId()).orElseThrow().getQuantity()));
+        assertEquals(ordersBefore + products.size(), orderRepository.count());
+        return statements;
+    }
+
+    private List<Product> createProducts(int count, long quantity) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setTitle("Product " + System.nanoTime());
+            product.setPrice(1000L);
+            product.setQuantity(quantity);
+            products.add(productRepository.save(product));
+        }
+        return products;
+    }
+
+    private ProductOrderRequest request(List<Product> products, int quantity) {
+        ProductOrderRequest request = new ProductOrderRequest();
+        request.setReceiverFullName("Receiver");
+        request.setEmail("receiver@example.com");
+        request.setPhoneNumber("0123456789");
+        request.setAddressDetail("Ha Noi");
+        request.setHtmlContent("<p>order</p>");
+        List<ProductOrderRequest.OrderRequest> lines = new ArrayList<>();
+        products.forEach(product -> {
+            ProductOrderRequest.OrderRequest line = new ProductOrderRequest.OrderRequest();
+            line.setProductId(product.getId());
+            line.setQuantity(quantity);
+            lines.add(line);
+        });
+        request.setProducts(lines);
+        return request;
+    }
+}
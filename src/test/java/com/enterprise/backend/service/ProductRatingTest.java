@@ -0,0 +1,98 @@
+package com.enterprise.backend.service;
+
+import com.enterprise.backend.model.entity.Product;
+import com.enterprise.backend.model.entity.Review;
+import com.enterprise.backend.model.request.ReviewRequest;
+import com.enterprise.backend.model.response.ProductResponse;
+import com.enterprise.backend.service.repository.ProductRepository;
+import com.enterprise.backend.service.repository.ReviewRepository;
+import com.enterprise.backend.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductRatingTest extends IntegrationTest {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRatingService productRatingService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Test
+    void reviewsUpdateDistributionAndAverage() {
+        Product product = saveProduct(0);
+        for (int rate : new int[]{5, 4, 4, 1}) {
+            userService.addReview(review(product, rate));
+        }
+
+        ProductResponse response = productService.getById(product.getId());
+
+        assertEquals(List.of(1L, 0L, 0L, 2L, 1L), response.getRatingDistribution());
+        assertEquals(3.5, response.getRate(), 1e-9);
+    }
+
+    @Test
+    void reviewCostDoesNotGrowWithReviews() {
+        Product product = saveProduct(0);
+        int first = countReview(product);
+        for (int i = 0; i < 20; i++) {
+            userService.addReview(review(product, 3));
+        }
+
+        assertEquals(first, countReview(product));
+    }
+
+    @Test
+    void backfillCountsExistingReviews() {
+        Product product = saveProduct(0);
+        for (int rate : new int[]{2, 2, 5}) {
+            Review review = new Review();
+            review.setRate(rate);
+            review.setProduct(product);
+            reviewRepository.save(review);
+        }
+        product.setRating1(null);
+        product.setRating2(null);
+        product.setRating3(null);
+        product.setRating4(null);
+        product.setRating5(null);
+        productRepository.save(product);
+
+        userService.addReview(review(product, 1));
+        assertNull(productRepository.findById(product.getId()).orElseThrow().getRatingDistribution());
+        assertTrue(productRatingService.findProductIdsWithoutRating(10_000).contains(product.getId()));
+
+        assertTrue(productRatingService.backfill(product.getId()));
+        assertFalse(productRatingService.backfill(product.getId()));
+
+        Product backfilled = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(List.of(1L, 2L, 0L, 0L, 1L), backfilled.getRatingDistribution());
+        assertEquals(2.5, backfilled.getRate(), 1e-9);
+    }
+
+    private int countReview(Product product) {
+        statementCounter.reset();
+        userService.addReview(review(product, 4));
+        return statementCounter.get();
+    }
+
+    private ReviewRequest review(Product product, int rate) {
+        ReviewRequest request = new ReviewRequest();
+        request.setProductId(product.getId());
+        request.setRate(rate);
+        request.setComment("Review");
+        return request;
+    }
+}
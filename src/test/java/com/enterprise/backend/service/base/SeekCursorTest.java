@@ -0,0 +1,49 @@
+package com.enterprise.backend.service.base;
+
+import com.enterprise.backend.exception.EnterpriseBackendException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeekCursorTest {
+
+    @Test
+    void valuesWithSeparatorsRoundTrip() {
+        SeekCursor cursor = roundTrip(new SeekCursor("title", true, "a|b:3:-|", 7L), String.class);
+
+        assertEquals("title", cursor.getOrderBy());
+        assertTrue(cursor.isDesc());
+        assertEquals("a|b:3:-|", cursor.getValue());
+        assertEquals(7L, cursor.getId());
+    }
+
+    @Test
+    void typedAndNullValuesRoundTrip() {
+        LocalDateTime createdDate = LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6_000);
+
+        assertEquals(createdDate, roundTrip(new SeekCursor("createdDate", false, createdDate, 1L), LocalDateTime.class).getValue());
+        assertEquals(4.5, roundTrip(new SeekCursor("rate", false, 4.5, 1L), Double.class).getValue());
+        assertEquals("", roundTrip(new SeekCursor("title", false, "", 1L), String.class).getValue());
+        assertNull(roundTrip(new SeekCursor("price", false, null, 1L), Long.class).getValue());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        String truncated = new SeekCursor("price", false, 100L, 1L).encode();
+
+        assertThrows(EnterpriseBackendException.class, () -> SeekCursor.decode("not a cursor", Long.class, Long.class));
+        assertThrows(EnterpriseBackendException.class,
+                () -> SeekCursor.decode(truncated.substring(0, truncated.length() - 2), Long.class, Long.class));
+        assertThrows(EnterpriseBackendException.class,
+                () -> SeekCursor.decode(new SeekCursor("price", false, "x", 1L).encode(), Long.class, Long.class));
+    }
+
+    private static SeekCursor roundTrip(SeekCursor cursor, Class<?> valueType) {
+        return SeekCursor.decode(cursor.encode(), valueType, Long.class);
+    }
+}
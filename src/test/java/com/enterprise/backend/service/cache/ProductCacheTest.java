@@ -0,0 +1,45 @@
+package com.enterprise.backend.service.cache;
+
+import com.enterprise.backend.model.response.ProductResponse;
+import com.enterprise.backend.service.MetricsService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ProductCacheTest {
+
+    private final ProductCache cache = new ProductCache(10, 300, new MetricsService());
+
+    @Test
+    void callersCannotChangeTheCachedResponse() {
+        ProductResponse first = cache.get(1L, id -> product());
+        first.getRatingDistribution().set(0, 99L);
+        first.getImagesUrl().clear();
+        first.getOfCategories().get(0).setName("Changed");
+        first.setFavorite(true);
+
+        ProductResponse second = cache.get(1L, id -> {
+            throw new AssertionError("served from the cache");
+        });
+
+        assertEquals(List.of(1L, 0L, 0L, 0L, 2L), second.getRatingDistribution());
+        assertEquals(List.of("a.png"), second.getImagesUrl());
+        assertEquals("Category", second.getOfCategories().get(0).getName());
+        assertFalse(second.isFavorite());
+    }
+
+    private ProductResponse product() {
+        ProductResponse response = new ProductResponse();
+        response.setId(1L);
+        response.setRatingDistribution(new ArrayList<>(List.of(1L, 0L, 0L, 0L, 2L)));
+        response.setImagesUrl(new ArrayList<>(List.of("a.png")));
+        ProductResponse.OfCategory category = new ProductResponse.OfCategory();
+        category.setName("Category");
+        response.setOfCategories(new ArrayList<>(List.of(category)));
+        return response;
+    }
+}
@@ -0,0 +1,47 @@
+package com.enterprise.backend.service.cache;
+
+import com.enterprise.backend.service.MetricsService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCredentialCacheTest {
+
+    private final UserCredentialCache cache = new UserCredentialCache(100, 60, new MetricsService());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void evictingAUserDropsEveryIdentifier() {
+        cache.get("user-1", identifier -> credential(true));
+        cache.get("0123456789", identifier -> credential(true));
+        cache.get("user@example.com", identifier -> credential(true));
+        assertEquals(3, loads.get());
+
+        cache.evict("user-1");
+
+        assertFalse(cache.get("0123456789", identifier -> credential(false)).isActive());
+        assertFalse(cache.get("user@example.com", identifier -> credential(false)).isActive());
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void loadRacingAnEvictionIsNotStored() {
+        assertTrue(cache.get("0123456789", identifier -> {
+            // the user is banned while this login is still reading the old row
+            cache.evict("user-1");
+            return credential(true);
+        }).isActive());
+
+        assertFalse(cache.get("0123456789", identifier -> credential(false)).isActive());
+    }
+
+    private UserCredentialCache.Credential credential(boolean active) {
+        loads.incrementAndGet();
+        return new UserCredentialCache.Credential("user-1", "hash", active, List.of("ROLE_USER"));
+    }
+}
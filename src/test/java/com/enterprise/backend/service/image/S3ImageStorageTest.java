@@ -0,0 +1,153 @@
+package com.enterprise.backend.service.image;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.support.FakeS3Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3ImageStorageTest {
+    private static final String BUCKET = "images";
+
+    private final MetricsService metricsService = new MetricsService();
+    private FakeS3Server server;
+    private S3ImageStorage storage;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = FakeS3Server.start();
+        storage = new S3ImageStorage(server.getEndpoint(), "access", "secret", BUCKET, "us-east-1",
+                5 * 1024 * 1024, 30, metricsService);
+        storage.createBucket();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void sameBytesAreStoredOnce() throws IOException {
+        byte[] bytes = "image".getBytes();
+
+        String key = storage.put(new ByteArrayInputStream(bytes), "Photo.PNG");
+
+        assertEquals(key, storage.put(new ByteArrayInputStream(bytes), "copy.png"));
+        assertTrue(key.endsWith(".png"));
+        assertEquals(Set.of(key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key), server.objectNames(BUCKET));
+        try (InputStream in = storage.open(key)) {
+            assertArrayEquals(bytes, in.readAllBytes());
+        }
+        assertNull(storage.open("missing.png"));
+    }
+
+    @Test
+    void largeUploadsStreamInParts() throws IOException {
+        byte[] bytes = new byte[6 * 1024 * 1024];
+        new Random(1).nextBytes(bytes);
+
+        String key = storage.put(new ByteArrayInputStream(bytes), "large.jpg");
+
+        assertEquals(1, server.getMultipartUploads());
+        try (InputStream in = storage.open(key)) {
+            assertArrayEquals(bytes, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void imagesAreServedThroughPresignedRedirects() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB), "png", png);
+        String key = storage.put(new ByteArrayInputStream(png.toByteArray()), "photo.png");
+        ImageDerivativeService derivativeService = new ImageDerivativeService(storage, 1, 10, 600, metricsService);
+        ImageService imageService = new ImageService(31536000, 3600, storage, derivativeService, metricsService);
+        try {
+            MockHttpServletResponse original = serve(imageService, key, null);
+            assertEquals(302, original.getStatus());
+            assertEquals("max-age=3600, private", original.getHeader(HttpHeaders.CACHE_CONTROL));
+            URI location = URI.create(original.getHeader(HttpHeaders.LOCATION));
+            assertTrue(location.getRawQuery().contains("X-Amz-Signature"));
+            try (InputStream in = location.toURL().openStream()) {
+                assertArrayEquals(png.toByteArray(), in.readAllBytes());
+            }
+
+            MockHttpServletResponse pending = serve(imageService, key, ImageVariant.THUMB);
+            assertEquals(location.getPath(), URI.create(pending.getHeader(HttpHeaders.LOCATION)).getPath());
+            assertEquals("no-cache", pending.getHeader(HttpHeaders.CACHE_CONTROL));
+
+            // variants are written in declaration order, so the last one marks the whole set done
+            for (int i = 0; i < 100 && !storage.exists(key, ImageVariant.DETAIL); i++) {
+                Thread.sleep(100);
+            }
+            URI thumb = URI.create(serve(imageService, key, ImageVariant.THUMB).getHeader(HttpHeaders.LOCATION));
+            try (InputStream in = thumb.toURL().openStream()) {
+                assertEquals(160, ImageIO.read(in).getWidth());
+            }
+
+            assertEquals(404, serve(imageService, "missing.png", null).getStatus());
+            assertEquals(404, serve(imageService, "../secret", null).getStatus());
+        } finally {
+            derivativeService.destroy();
+        }
+    }
+
+    @Test
+    void missingVariantsAreCheckedOnce() throws Exception {
+        String key = storage.put(new ByteArrayInputStream("image".getBytes()), "photo.png");
+        int heads = server.getObjectHeads();
+
+        assertFalse(storage.exists(key, ImageVariant.THUMB));
+        assertFalse(storage.exists(key, ImageVariant.THUMB));
+        assertEquals(heads + 1, server.getObjectHeads());
+
+        storage.putVariant(key, ImageVariant.THUMB, "thumb".getBytes());
+        assertTrue(storage.exists(key, ImageVariant.THUMB));
+    }
+
+    @Test
+    void imagesWithoutAWriterAreServedAsTheOriginal() throws Exception {
+        String key = storage.put(new ByteArrayInputStream("image".getBytes()), "photo.webp");
+        ImageDerivativeService derivativeService = new ImageDerivativeService(storage, 1, 10, 600, metricsService);
+        ImageService imageService = new ImageService(31536000, 3600, storage, derivativeService, metricsService);
+        try {
+            int heads = server.getObjectHeads();
+
+            MockHttpServletResponse response = serve(imageService, key, ImageVariant.THUMB);
+
+            assertEquals(302, response.getStatus());
+            assertEquals("max-age=3600, private", response.getHeader(HttpHeaders.CACHE_CONTROL));
+            assertEquals("/" + BUCKET + "/" + ImageStorage.relativePath(key, null),
+                    URI.create(response.getHeader(HttpHeaders.LOCATION)).getPath());
+            assertEquals(heads, server.getObjectHeads());
+            assertFalse(derivativeService.canResize(key));
+        } finally {
+            derivativeService.destroy();
+        }
+    }
+
+    private MockHttpServletResponse serve(ImageService imageService, String name, ImageVariant variant)
+            throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imageService.serve(name, variant, new MockHttpServletRequest("GET", "/product/images/" + name), response);
+        return response;
+    }
+}
@@ -0,0 +1,98 @@
+package com.enterprise.backend.service.mail;
+
+import com.enterprise.backend.service.MetricsService;
+import com.enterprise.backend.support.FakeMailSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailDispatcherTest {
+
+    private final FakeMailSender mailSender = new FakeMailSender();
+    private MailDispatcher dispatcher;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    void queuedMailsShareConnections() throws InterruptedException {
+        dispatcher = dispatcher(100, 3);
+        for (int i = 0; i < 50; i++) {
+            dispatcher.dispatch("user" + i + "@example.com", "subject", "<p>body</p>", true);
+        }
+        dispatcher.start();
+
+        await(() -> mailSender.getDelivered().size() == 50);
+        assertEquals(3, mailSender.getConnections());
+        assertEquals(50, dispatcher.stats().getSent());
+    }
+
+    @Test
+    void failedMailsAreRetried() throws InterruptedException {
+        dispatcher = dispatcher(100, 3);
+        mailSender.failNext(2);
+        dispatcher.dispatch("user@example.com", "subject", "body", false);
+        dispatcher.start();
+
+        await(() -> mailSender.getDelivered().size() == 1);
+        assertEquals(2, dispatcher.stats().getRetried());
+        assertEquals(0, dispatcher.stats().getFailed());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws InterruptedException {
+        dispatcher = dispatcher(100, 3);
+        mailSender.failNext(Integer.MAX_VALUE);
+        dispatcher.dispatch("user@example.com", "subject", "body", false);
+        dispatcher.start();
+
+        await(() -> dispatcher.stats().getFailed() == 1);
+        assertEquals(3, mailSender.getConnections());
+        assertTrue(mailSender.getDelivered().isEmpty());
+    }
+
+    @Test
+    void deliveryOutcomeIsReported() throws Exception {
+        dispatcher = dispatcher(100, 2);
+        CompletableFuture<Boolean> delivered = dispatcher.dispatch("a@example.com", "subject", "body", false);
+        dispatcher.start();
+        assertTrue(delivered.get(5, TimeUnit.SECONDS));
+
+        mailSender.failNext(Integer.MAX_VALUE);
+        assertFalse(dispatcher.dispatch("b@example.com", "subject", "body", false).get(5, TimeUnit.SECONDS));
+        assertFalse(dispatcher.dispatch("", "subject", "body", false).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void fullQueueRejectsAfterTimeout() {
+        dispatcher = dispatcher(2, 3);
+
+        assertFalse(dispatcher.dispatch("a@example.com", "subject", "body", false).isDone());
+        assertFalse(dispatcher.dispatch("b@example.com", "subject", "body", false).isDone());
+        assertFalse(dispatcher.dispatch("c@example.com", "subject", "body", false).getNow(true));
+        assertEquals(1, dispatcher.stats().getRejected());
+        assertEquals(2, dispatcher.stats().getQueueDepth());
+    }
+
+    private MailDispatcher dispatcher(int queueCapacity, int maxAttempts) {
+        return new MailDispatcher(mailSender, "shop@example.com", 1, queueCapacity, 20, 10,
+                maxAttempts, 5, new MetricsService());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
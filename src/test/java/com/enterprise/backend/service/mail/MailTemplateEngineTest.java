@@ -0,0 +1,45 @@
+package com.enterprise.backend.service.mail;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailTemplateEngineTest {
+
+    @Test
+    void rendersClasspathTemplatesAndSubjects() {
+        MailTemplateEngine engine = new MailTemplateEngine(new DefaultResourceLoader(), "classpath:/email/", false);
+
+        String body = engine.render("mailTemplate.html", Map.of("fullName", "Nguyễn <Văn> A", "code", "123456"));
+
+        assertTrue(body.contains("Nguyễn &lt;Văn&gt; A"));
+        assertTrue(body.contains("123456"));
+        assertFalse(body.contains("{{"));
+        assertEquals("Bạn vừa đặt một đơn hàng mới tại homefood",
+                engine.subject("new-order.customer", Map.of("domain", "homefood")));
+    }
+
+    @Test
+    void reloadsChangedTemplates(@TempDir Path dir) throws IOException {
+        Path template = dir.resolve("hello.html");
+        Files.writeString(template, "Hello {{ name }}");
+        MailTemplateEngine engine = new MailTemplateEngine(new DefaultResourceLoader(), dir.toUri().toString(), true);
+        assertEquals("Hello An", engine.render("hello.html", Map.of("name", "An")));
+
+        Files.writeString(template, "Hi {{name}}!");
+        Files.setLastModifiedTime(template, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        assertEquals("Hi An!", engine.render("hello.html", Map.of("name", "An")));
+        assertEquals("Hi !", engine.render("hello.html", Map.of()));
+    }
+}
@@ -0,0 +1,44 @@
+package com.enterprise.backend.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex(null);
+
+    @Test
+    void foldsDiacriticsAndMatchesPrefixes() {
+        index.index(1L, "Bánh mì thịt", "Bánh mì Sài Gòn");
+        index.index(2L, "Phở bò", "Đặc sản Hà Nội, ăn kèm bánh phở");
+
+        assertEquals(List.of(1L), index.search("banh mi"));
+        assertEquals(List.of(2L), index.search("pho b"));
+        assertEquals(List.of(2L), index.search("dac san"));
+    }
+
+    @Test
+    void ranksTitleAndExactMatchesFirst() {
+        index.index(1L, "Bánh phở", "Hộp 500g");
+        index.index(2L, "Phở bò", "");
+        index.index(3L, "Bún bò", "Có thể thay bằng phở");
+
+        assertEquals(List.of(2L, 1L, 3L), index.search("pho"));
+    }
+
+    @Test
+    void reindexReplacesAndRemoveDropsTokens() {
+        index.index(1L, "Cà phê sữa", "");
+        index.index(1L, "Trà đá", "");
+
+        assertTrue(index.search("ca phe").isEmpty());
+        assertEquals(List.of(1L), index.search("tra"));
+
+        index.remove(1L);
+        assertTrue(index.search("tra").isEmpty());
+    }
+}
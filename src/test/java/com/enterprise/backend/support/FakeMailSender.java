@@ -0,0 +1,118 @@
+package com.enterprise.backend.support;
+
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory {@link JavaMailSender}; each {@code send} call stands for one SMTP connection.
+ */
+public class FakeMailSender implements JavaMailSender {
+    private final Session session = Session.getInstance(new Properties());
+    private final List<MimeMessage> delivered = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+
+    public void failNext(int connections) {
+        failuresLeft.set(connections);
+    }
+
+    /**
+     * Fails every mail to {@code address} until {@link #accept} is called; other mails of the same call go through.
+     */
+    public void reject(String address) {
+        rejected.add(address);
+    }
+
+    public void accept(String address) {
+        rejected.remove(address);
+    }
+
+    public List<MimeMessage> getDelivered() {
+        return delivered;
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    @Override
+    public MimeMessage createMimeMessage() {
+        return new MimeMessage(session);
+    }
+
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(MimeMessage mimeMessage) {
+        send(new MimeMessage[]{mimeMessage});
+    }
+
+    @Override
+    public void send(MimeMessage... mimeMessages) {
+        connections.incrementAndGet();
+        if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            Arrays.stream(mimeMessages).forEach(message -> failed.put(message, new IllegalStateException("connection refused")));
+            throw new MailSendException(failed);
+        }
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        for (MimeMessage message : mimeMessages) {
+            if (isRejected(message)) {
+                failed.put(message, new IllegalStateException("recipient rejected"));
+            } else {
+                delivered.add(message);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new MailSendException(failed);
+        }
+    }
+
+    private boolean isRejected(MimeMessage message) {
+        try {
+            return Arrays.stream(message.getAllRecipients()).anyMatch(address -> rejected.contains(address.toString()));
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void send(MimeMessagePreparator mimeMessagePreparator) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(MimeMessagePreparator... mimeMessagePreparators) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,210 @@
+package com.enterprise.backend.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The part of the S3 API the image storage uses, kept in memory: buckets, single and multipart object uploads,
+ * server-side copy, stat, download and delete. Signatures are not checked.
+ */
+public class FakeS3Server {
+    private static final String LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT";
+
+    private final HttpServer server;
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger multipartUploads = new AtomicInteger();
+    private final AtomicInteger objectHeads = new AtomicInteger();
+
+    private FakeS3Server(HttpServer server) {
+        this.server = server;
+        server.createContext("/", this::handle);
+    }
+
+    public static FakeS3Server start() throws IOException {
+        FakeS3Server fake = new FakeS3Server(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0));
+        fake.server.start();
+        return fake;
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Object names of {@code bucket}.
+     */
+    public Set<String> objectNames(String bucket) {
+        Set<String> names = new TreeSet<>();
+        objects.keySet().stream()
+                .filter(key -> key.startsWith(bucket + "/"))
+                .forEach(key -> names.add(key.substring(bucket.length() + 1)));
+        return names;
+    }
+
+    public int getMultipartUploads() {
+        return multipartUploads.get();
+    }
+
+    /**
+     * HEAD requests for objects, found or not.
+     */
+    public int getObjectHeads() {
+        return objectHeads.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8).substring(1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            // the whole body is read first, a connection left with unread bytes is dropped by the server
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (!path.contains("/")) {
+                handleBucket(exchange, method, path);
+            } else if ("PUT".equals(method) && query.containsKey("partNumber")) {
+                uploads.get(query.get("uploadId")).put(Integer.parseInt(query.get("partNumber")), body);
+                exchange.getResponseHeaders().set("ETag", etag(body));
+                exchange.sendResponseHeaders(200, -1);
+            } else if ("PUT".equals(method) && exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                String source = URLDecoder.decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"),
+                        StandardCharsets.UTF_8).replaceFirst("^/", "");
+                StoredObject object = objects.get(source);
+                if (object == null) {
+                    missing(exchange, source);
+                    return;
+                }
+                objects.put(path, object);
+                xml(exchange, "<CopyObjectResult><LastModified>2024-01-01T00:00:00.000Z</LastModified><ETag>"
+                        + object.etag + "</ETag></CopyObjectResult>");
+            } else if ("PUT".equals(method)) {
+                objects.put(path, new StoredObject(body, exchange.getRequestHeaders().getFirst("Content-Type")));
+                exchange.getResponseHeaders().set("ETag", etag(body));
+                exchange.sendResponseHeaders(200, -1);
+            } else if ("POST".equals(method) && query.containsKey("uploads")) {
+                String uploadId = UUID.randomUUID().toString();
+                uploads.put(uploadId, new TreeMap<>());
+                int slash = path.indexOf('/');
+                xml(exchange, "<InitiateMultipartUploadResult><Bucket>" + path.substring(0, slash) + "</Bucket><Key>"
+                        + path.substring(slash + 1) + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+            } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                for (byte[] part : uploads.remove(query.get("uploadId")).values()) {
+                    content.write(part);
+                }
+                StoredObject object = new StoredObject(content.toByteArray(), null);
+                objects.put(path, object);
+                multipartUploads.incrementAndGet();
+                int slash = path.indexOf('/');
+                xml(exchange, "<CompleteMultipartUploadResult><Location>" + getEndpoint() + "/" + path + "</Location><Bucket>"
+                        + path.substring(0, slash) + "</Bucket><Key>" + path.substring(slash + 1) + "</Key><ETag>"
+                        + object.etag + "</ETag></CompleteMultipartUploadResult>");
+            } else if ("DELETE".equals(method)) {
+                objects.remove(path);
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                if ("HEAD".equals(method)) {
+                    objectHeads.incrementAndGet();
+                }
+                StoredObject object = objects.get(path);
+                if (object == null) {
+                    missing(exchange, path);
+                    return;
+                }
+                exchange.getResponseHeaders().set("ETag", object.etag);
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                exchange.getResponseHeaders().set("Content-Type", object.contentType);
+                if ("HEAD".equals(method)) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.content.length));
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, object.content.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(object.content);
+                    }
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String method, String bucket) throws IOException {
+        if ("PUT".equals(method)) {
+            buckets.add(bucket);
+            exchange.sendResponseHeaders(200, -1);
+        } else if (buckets.contains(bucket)) {
+            exchange.sendResponseHeaders(200, -1);
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+    }
+
+    private void missing(HttpExchange exchange, String path) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        byte[] body = ("<Error><Code>NoSuchKey</Code><Message>Not found</Message><Resource>/" + path
+                + "</Resource><RequestId>1</RequestId><HostId>1</HostId></Error>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(404, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void xml(HttpExchange exchange, String xml) throws IOException {
+        byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            Arrays.stream(rawQuery.split("&")).forEach(pair -> {
+                String[] parts = pair.split("=", 2);
+                query.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+                        parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+            });
+        }
+        return query;
+    }
+
+    private static String etag(byte[] content) {
+        return "\"" + Integer.toHexString(Arrays.hashCode(content)) + "\"";
+    }
+
+    private static class StoredObject {
+        private final byte[] content;
+        private final String contentType;
+        private final String etag;
+
+        StoredObject(byte[] content, String contentType) {
+            this.content = content;
+            this.contentType = contentType != null ? contentType : "application/octet-stream";
+            this.etag = etag(content);
+        }
+    }
+}
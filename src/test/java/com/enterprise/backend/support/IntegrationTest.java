@@ -0,0 +1,149 @@
+package com.enterprise.backend.support;
+
+import com.enterprise.backend.config.JwtToken;
+import com.enterprise.backend.config.QueryCounter;
+import com.enterprise.backend.model.entity.Authority;
+import com.enterprise.backend.model.entity.Category;
+import com.enterprise.backend.model.entity.Product;
+import com.enterprise.backend.model.entity.User;
+import com.enterprise.backend.service.repository.AuthorityRepository;
+import com.enterprise.backend.service.repository.CategoryRepository;
+import com.enterprise.backend.service.repository.ProductRepository;
+import com.enterprise.backend.service.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Base for tests running the whole application on the in-memory H2 database; all subclasses share one context
+ * with statement counting through {@link QueryCounter}, per request and per test thread, and an in-memory mail
+ * sender.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "query-count"})
+@Import(IntegrationTest.Config.class)
+public abstract class IntegrationTest {
+
+    protected static final String PASSWORD = "secret-password";
+    private static final AtomicInteger PRIORITY = new AtomicInteger(1000);
+
+    @TestConfiguration
+    public static class Config {
+        @Bean
+        StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+
+        @Bean
+        FakeMailSender javaMailSender() {
+            return new FakeMailSender();
+        }
+    }
+
+    @Autowired
+    protected StatementCounter statementCounter;
+    @Autowired
+    protected FakeMailSender mailSender;
+    @Autowired
+    protected MockMvc mockMvc;
+    @Autowired
+    protected QueryCounter queryCounter;
+    @Autowired
+    protected ObjectMapper objectMapper;
+    @Autowired
+    private JwtToken jwtToken;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AuthorityRepository authorityRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    /**
+     * Performs one request and fails when it ran more SQL statements than {@code budget}.
+     */
+    protected ResultActions perform(int budget, MockHttpServletRequestBuilder request) throws Exception {
+        queryCounter.reset();
+        ResultActions result = mockMvc.perform(request);
+        Map<String, QueryCounter.EndpointStats> endpoints = queryCounter.snapshot();
+        assertEquals(1, endpoints.size(), "requests recorded: " + endpoints.keySet());
+        Map.Entry<String, QueryCounter.EndpointStats> endpoint = endpoints.entrySet().iterator().next();
+        long statements = endpoint.getValue().getMax();
+        assertTrue(statements <= budget, endpoint.getKey() + " ran " + statements + " statements, budget is " + budget);
+        return result;
+    }
+
+    protected String bearer(User user) {
+        List<String> roles = user.getAuthorities().stream()
+                .map(authority -> authority.getRole().name())
+                .collect(Collectors.toList());
+        return "Bearer " + jwtToken.generateToken(user.getId(), roles);
+    }
+
+    protected String json(Object value) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(value);
+    }
+
+    protected User saveUser(Authority.Role... roles) {
+        User user = new User();
+        user.setId("user" + System.nanoTime());
+        user.setEmail(user.getId() + "@example.com");
+        user.setPhone(String.valueOf(System.nanoTime()).substring(0, 12));
+        user.setFullName("Reviewer");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        userRepository.save(user);
+        user.setAuthorities(new HashSet<>());
+        Arrays.stream(roles).forEach(role ->
+                user.getAuthorities().add(authorityRepository.save(Authority.builder().role(role).user(user).build())));
+        return user;
+    }
+
+    protected Category saveCategory() {
+        Category category = new Category();
+        category.setName("Category " + System.nanoTime());
+        category.setPriority(nextPriority());
+        return categoryRepository.save(category);
+    }
+
+    protected int nextPriority() {
+        return PRIORITY.incrementAndGet();
+    }
+
+    protected Product saveProduct(int categories) {
+        Product product = new Product();
+        product.setTitle("Product " + System.nanoTime());
+        product.setDescription("Description");
+        product.setPrice(1000L);
+        product.setQuantity(10L);
+        product.setCategories(new HashSet<>());
+        for (int i = 0; i < categories; i++) {
+            product.getCategories().add(saveCategory());
+        }
+        return productRepository.save(product);
+    }
+}
@@ -0,0 +1,18 @@
+package com.enterprise.backend.support;
+
+import com.enterprise.backend.config.QueryCounter;
+
+/**
+ * Counts the statements run by the calling thread through the {@link QueryCounter} wrapping the DataSource, so
+ * scheduled jobs do not leak into a measurement; a JDBC batch counts once.
+ */
+public class StatementCounter {
+
+    public void reset() {
+        QueryCounter.begin();
+    }
+
+    public int get() {
+        return QueryCounter.current();
+    }
+}
@@ -0,0 +1,72 @@
+package com.enterprise.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    @Test
+    void entriesExpireAfterTtl() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 100, now::get);
+        cache.put("a", "1");
+        cache.put("b", "2", now.get() + 50);
+
+        now.addAndGet(50);
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+
+        now.addAndGet(50);
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.stats().getExpirations());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, 1_000, now::get);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotStored() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 1_000, now::get);
+
+        String loaded = cache.get("a", key -> {
+            // the row changes and the cache is evicted while this load is still reading the old value
+            cache.invalidate(key);
+            return "stale";
+        });
+
+        assertEquals("stale", loaded);
+        assertNull(cache.get("a"));
+        assertEquals("fresh", cache.get("a", key -> "fresh"));
+        assertEquals("fresh", cache.get("a"));
+    }
+
+    @Test
+    void segmentsShareTheSizeBound() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(64, 1_000, 8, now::get);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, i);
+        }
+
+        assertTrue(cache.size() <= 64);
+        assertEquals(999, cache.get(999));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}